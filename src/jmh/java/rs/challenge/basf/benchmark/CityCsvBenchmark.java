@@ -0,0 +1,39 @@
+package rs.challenge.basf.benchmark;
+
+import org.apache.commons.csv.CSVRecord;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.ClassPathResource;
+import rs.challenge.basf.service.CityImportService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CityCsvBenchmark {
+
+    private String csv;
+
+    @Setup
+    public void setup() throws IOException {
+        try (InputStream inputStream = new ClassPathResource("cities.csv").getInputStream()) {
+            csv = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    public void parseCities(Blackhole blackhole) throws IOException {
+        for (CSVRecord record : CityImportService.CSV_FORMAT.parse(new StringReader(csv))) {
+            blackhole.consume(CityImportService.parseRow(record));
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package rs.challenge.basf.benchmark;
+
+import org.apache.commons.csv.CSVRecord;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ClassPathResource;
+import rs.challenge.basf.model.CitySummary;
+import rs.challenge.basf.service.CityImportService;
+import rs.challenge.basf.util.CitySearchIndex;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CitySearchBenchmark {
+
+    @Param({"b", "bel", "belgr", "blegrade", "san fr"})
+    private String query;
+
+    private CitySearchIndex index;
+
+    @Setup
+    public void setup() throws IOException {
+        index = new CitySearchIndex();
+        long id = 1;
+        try (Reader reader = new InputStreamReader(new ClassPathResource("cities.csv").getInputStream(),
+                StandardCharsets.UTF_8)) {
+            for (CSVRecord record : CityImportService.CSV_FORMAT.parse(reader)) {
+                Object[] row = CityImportService.parseRow(record);
+                index.put(new CitySummary(id++, (String) row[0], (String) row[1], (String) row[2],
+                        (Long) row[3]));
+            }
+        }
+    }
+
+    @Benchmark
+    public List<CitySummary> search() {
+        return index.search(query, 10);
+    }
+
+}
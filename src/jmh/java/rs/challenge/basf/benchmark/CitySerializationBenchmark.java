@@ -0,0 +1,42 @@
+package rs.challenge.basf.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import rs.challenge.basf.model.City;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CitySerializationBenchmark {
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<City> cities;
+
+    @Setup
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        cities = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            cities.add(new City((long) i, "City" + i, "Country" + i % 200,
+                    "Region" + i % 3000, 10_000L + i * 37L, 0, false));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeCities() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(cities);
+    }
+
+}
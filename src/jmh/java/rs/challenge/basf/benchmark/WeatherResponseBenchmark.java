@@ -0,0 +1,50 @@
+package rs.challenge.basf.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import rs.challenge.basf.util.WeatherResponseParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WeatherResponseBenchmark {
+
+    static final String WEATHER_RESPONSE = """
+            {"location":{"name":"Belgrade","region":"Central Serbia","country":"Serbia","lat":44.8,"lon":20.47,
+            "tz_id":"Europe/Belgrade","localtime_epoch":1701432000,"localtime":"2023-12-01 13:00"},
+            "current":{"last_updated_epoch":1701431100,"last_updated":"2023-12-01 12:45","temp_c":4.0,"temp_f":39.2,
+            "is_day":1,"condition":{"text":"Partly cloudy","icon":"//cdn.weatherapi.com/weather/64x64/day/116.png",
+            "code":1003},"wind_mph":6.9,"wind_kph":11.2,"wind_degree":140,"wind_dir":"SE","pressure_mb":1012.0,
+            "pressure_in":29.88,"precip_mm":0.0,"precip_in":0.0,"humidity":81,"cloud":50,"feelslike_c":0.8,
+            "feelslike_f":33.4,"vis_km":10.0,"vis_miles":6.0,"uv":1.0,"gust_mph":10.3,"gust_kph":16.6}}
+            """;
+
+    private ObjectMapper objectMapper;
+    private byte[] response;
+
+    @Setup
+    public void setup() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        response = WEATHER_RESPONSE.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public double readTemperatureTree() throws IOException {
+        return objectMapper.readTree(response).path("current").path("temp_c").asDouble();
+    }
+
+    @Benchmark
+    public double readTemperatureStreaming() throws IOException {
+        return WeatherResponseParser.readTemperature(new ByteArrayInputStream(response));
+    }
+
+}
@@ -0,0 +1,68 @@
+package rs.challenge.basf.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+public class LatencyRecorder {
+
+    private static final String TOTAL = "total";
+
+    private final Map<String, ConcurrentLinkedQueue<Long>> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+    public void record(String operation, long nanos, boolean success) {
+        latencies.computeIfAbsent(operation, key -> new ConcurrentLinkedQueue<>()).add(nanos);
+        latencies.computeIfAbsent(TOTAL, key -> new ConcurrentLinkedQueue<>()).add(nanos);
+        if (!success) {
+            errors.computeIfAbsent(operation, key -> new LongAdder()).increment();
+            errors.computeIfAbsent(TOTAL, key -> new LongAdder()).increment();
+        }
+    }
+
+    public Map<String, Map<String, Object>> summarize(Duration elapsed) {
+        Map<String, Map<String, Object>> summary = new TreeMap<>();
+        latencies.forEach((operation, samples) -> {
+            long[] sorted = samples.stream().mapToLong(Long::longValue).sorted().toArray();
+            LongAdder errorCount = errors.get(operation);
+
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("requests", sorted.length);
+            stats.put("errors", errorCount == null ? 0 : errorCount.sum());
+            stats.put("throughput", sorted.length * 1000.0 / Math.max(elapsed.toMillis(), 1));
+            stats.put("p50", percentileMillis(sorted, 0.50));
+            stats.put("p90", percentileMillis(sorted, 0.90));
+            stats.put("p99", percentileMillis(sorted, 0.99));
+            stats.put("p999", percentileMillis(sorted, 0.999));
+            stats.put("max", percentileMillis(sorted, 1.0));
+            summary.put(operation, stats);
+        });
+        return summary;
+    }
+
+    public static List<String> format(Map<String, Map<String, Object>> summary) {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format("%-14s %9s %7s %10s %9s %9s %9s %9s %9s",
+                "operation", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+        summary.forEach((operation, stats) -> lines.add(String.format(
+                "%-14s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f", operation,
+                stats.get("requests"), stats.get("errors"), stats.get("throughput"), stats.get("p50"),
+                stats.get("p90"), stats.get("p99"), stats.get("p999"), stats.get("max"))));
+        return lines;
+    }
+
+    private static double percentileMillis(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1_000_000.0;
+    }
+
+}
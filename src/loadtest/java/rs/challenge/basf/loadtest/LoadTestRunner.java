@@ -0,0 +1,266 @@
+package rs.challenge.basf.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.convert.DurationStyle;
+import org.springframework.context.ConfigurableApplicationContext;
+import rs.challenge.basf.BasfApplication;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Starts the application against a local {@link WeatherApiStub}, logs in through /auth/login and drives
+ * mixed read/write traffic on /api, then prints throughput and latency percentiles per operation.
+ * The database from spring.datasource.url is used, see docker-compose.yml next to this harness.
+ * <p>
+ * Options are passed as --key=value: duration, warmup, concurrency, stub-latency, stub-jitter,
+ * stub-error-rate, write-ratio, list-ratio, bulk-ratio, target (skips starting the application)
+ * and report (JSON output file).
+ */
+public class LoadTestRunner {
+
+    private static final String LOAD_TEST_PREFIX = "loadtest-";
+
+    private final Map<String, String> options;
+    private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ConcurrentLinkedDeque<Long> createdIds = new ConcurrentLinkedDeque<>();
+
+    private String baseUri;
+    private String token;
+    private List<String> cityNames;
+
+    public LoadTestRunner(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (arg.startsWith("--") && arg.contains("=")) {
+                options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+        }
+        new LoadTestRunner(options).run();
+        System.exit(0);
+    }
+
+    public void run() throws Exception {
+
+        WeatherApiStub stub = new WeatherApiStub(Integer.parseInt(option("stub-port", "0")),
+                duration("stub-latency", "50ms"), duration("stub-jitter", "20ms"),
+                Double.parseDouble(option("stub-error-rate", "0.01")));
+        stub.start();
+
+        ConfigurableApplicationContext context = null;
+        if (options.containsKey("target")) {
+            baseUri = options.get("target");
+        } else {
+            context = SpringApplication.run(BasfApplication.class, "--import-cities", "--server.port=0",
+                    "--api.weather.uri=" + stub.getUri(), "--logging.level.org.hibernate.SQL=INFO",
+                    "--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO");
+            baseUri = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+
+        try {
+            token = login();
+            cityNames = loadCityNames(5);
+            System.out.println("Loaded " + cityNames.size() + " city names, weather stub at " + stub.getUri());
+
+            drive(duration("warmup", "10s"), new LatencyRecorder());
+            LatencyRecorder recorder = new LatencyRecorder();
+            Duration duration = duration("duration", "60s");
+            drive(duration, recorder);
+
+            Map<String, Map<String, Object>> summary = recorder.summarize(duration);
+            LatencyRecorder.format(summary).forEach(System.out::println);
+            System.out.println("Upstream weather requests: " + stub.getRequests());
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("options", options);
+            report.put("upstreamRequests", stub.getRequests());
+            report.put("operations", summary);
+            objectMapper.writerWithDefaultPrettyPrinter()
+                    .writeValue(new File(option("report", "target/loadtest-result.json")), report);
+        } finally {
+            cleanUp();
+            if (context != null) {
+                context.close();
+            }
+            stub.stop();
+        }
+    }
+
+    private void drive(Duration duration, LatencyRecorder recorder) throws InterruptedException {
+        int concurrency = Integer.parseInt(option("concurrency", "32"));
+        double writeRatio = Double.parseDouble(option("write-ratio", "0.05"));
+        double listRatio = Double.parseDouble(option("list-ratio", "0.15"));
+        double bulkRatio = Double.parseDouble(option("bulk-ratio", "0.05"));
+
+        long deadline = System.nanoTime() + duration.toNanos();
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            workers.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    double r = random.nextDouble();
+                    if (r < writeRatio) {
+                        write(recorder, random);
+                    } else if (r < writeRatio + bulkRatio) {
+                        timed(recorder, "bulk", () -> post("/api/temperatures", bulkBody(random)));
+                    } else if (r < writeRatio + bulkRatio + listRatio) {
+                        timed(recorder, "list", () -> get("/api?size=100&after=" + random.nextInt(40_000)));
+                    } else {
+                        timed(recorder, "lookup", () -> get("/api/" + encode(pickCity(random))));
+                    }
+                }
+            });
+        }
+        workers.shutdown();
+        workers.awaitTermination(duration.toMillis() + 60_000, TimeUnit.MILLISECONDS);
+    }
+
+    private void write(LatencyRecorder recorder, ThreadLocalRandom random) {
+        Long id = random.nextBoolean() ? null : createdIds.pollFirst();
+        if (id == null) {
+            String name = LOAD_TEST_PREFIX + UUID.randomUUID();
+            timed(recorder, "create", () -> {
+                HttpResponse<String> response = post("/api", String.format(
+                        "{\"name\":\"%s\",\"country\":\"LoadTest\",\"stateRegion\":\"LoadTest\",\"population\":\"%d\"}",
+                        name, random.nextInt(1_000_000)));
+                if (response.statusCode() == 200) {
+                    createdIds.add(objectMapper.readTree(response.body()).get("id").asLong());
+                }
+                return response;
+            });
+        } else if (random.nextBoolean()) {
+            timed(recorder, "update", () -> send(HttpRequest.newBuilder(URI.create(baseUri + "/api"))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(String.format(
+                            "{\"id\":%d,\"population\":\"%d\"}", id, random.nextInt(1_000_000))))));
+            createdIds.add(id);
+        } else {
+            timed(recorder, "delete", () -> send(HttpRequest.newBuilder(URI.create(baseUri + "/api?id=" + id))
+                    .DELETE()));
+        }
+    }
+
+    private void cleanUp() {
+        Long id;
+        while ((id = createdIds.poll()) != null) {
+            try {
+                send(HttpRequest.newBuilder(URI.create(baseUri + "/api?id=" + id)).DELETE());
+            } catch (Exception ignored) {}
+        }
+    }
+
+    private String login() throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUri + "/auth/login"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(String.format("{\"email\":\"%s\",\"password\":\"%s\"}",
+                        option("email", "user1@gmail.com"), option("password", "user1"))))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login failed with status " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body()).get("jwtToken").asText();
+    }
+
+    private List<String> loadCityNames(int pages) throws IOException, InterruptedException {
+        List<String> names = new ArrayList<>();
+        long after = 0;
+        for (int page = 0; page < pages; page++) {
+            JsonNode body = objectMapper.readTree(get("/api?size=1000&after=" + after).body());
+            body.get("cities").forEach(city -> names.add(city.get("name").asText()));
+            if (body.get("nextCursor").isNull()) {
+                break;
+            }
+            after = body.get("nextCursor").asLong();
+        }
+        if (names.isEmpty()) {
+            throw new IllegalStateException("No cities found, import cities.csv first.");
+        }
+        return names;
+    }
+
+    private String pickCity(ThreadLocalRandom random) {
+        // 80% of lookups go to the first 20% of cities so that caching shows up in the results
+        int hot = Math.max(1, cityNames.size() / 5);
+        return random.nextDouble() < 0.8
+                ? cityNames.get(random.nextInt(hot))
+                : cityNames.get(random.nextInt(cityNames.size()));
+    }
+
+    private String bulkBody(ThreadLocalRandom random) throws IOException {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            names.add(pickCity(random));
+        }
+        return objectMapper.writeValueAsString(Map.of("names", names));
+    }
+
+    private void timed(LatencyRecorder recorder, String operation, Request request) {
+        long start = System.nanoTime();
+        boolean success;
+        try {
+            success = request.send().statusCode() < 400;
+        } catch (Exception e) {
+            success = false;
+        }
+        recorder.record(operation, System.nanoTime() - start, success);
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUri + path)).GET());
+    }
+
+    private HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(baseUri + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)));
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder builder) throws IOException, InterruptedException {
+        return client.send(builder.header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(30))
+                .build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private Duration duration(String name, String defaultValue) {
+        return DurationStyle.detectAndParse(option(name, defaultValue));
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8).replace("+", "%20");
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        HttpResponse<String> send() throws Exception;
+    }
+
+}
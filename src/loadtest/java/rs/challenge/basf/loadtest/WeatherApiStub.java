@@ -0,0 +1,100 @@
+package rs.challenge.basf.loadtest;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class WeatherApiStub {
+
+    private static final String RESPONSE = "{\"location\":{\"name\":\"%s\",\"region\":\"\",\"country\":\"\"," +
+            "\"lat\":44.8,\"lon\":20.47,\"tz_id\":\"Europe/Belgrade\",\"localtime_epoch\":1701432000," +
+            "\"localtime\":\"2023-12-01 13:00\"},\"current\":{\"last_updated_epoch\":1701431100," +
+            "\"last_updated\":\"2023-12-01 12:45\",\"temp_c\":%.1f,\"temp_f\":39.2,\"is_day\":1," +
+            "\"condition\":{\"text\":\"Partly cloudy\",\"icon\":\"//cdn.weatherapi.com/weather/64x64/day/116.png\"," +
+            "\"code\":1003},\"wind_mph\":6.9,\"wind_kph\":11.2,\"wind_degree\":140,\"wind_dir\":\"SE\"," +
+            "\"pressure_mb\":1012.0,\"pressure_in\":29.88,\"precip_mm\":0.0,\"precip_in\":0.0,\"humidity\":81," +
+            "\"cloud\":50,\"feelslike_c\":0.8,\"feelslike_f\":33.4,\"vis_km\":10.0,\"vis_miles\":6.0,\"uv\":1.0," +
+            "\"gust_mph\":10.3,\"gust_kph\":16.6}}";
+
+    private final HttpServer server;
+    private final Duration latency;
+    private final Duration jitter;
+    private final double errorRate;
+    private final AtomicLong requests = new AtomicLong();
+
+    public WeatherApiStub(int port, Duration latency, Duration jitter, double errorRate) throws IOException {
+        this.latency = latency;
+        this.jitter = jitter;
+        this.errorRate = errorRate;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        this.server.createContext("/v1/current.json", this::handle);
+        this.server.setExecutor(Executors.newCachedThreadPool());
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+    }
+
+    public String getUri() {
+        return "http://localhost:" + server.getAddress().getPort() + "/v1/current.json";
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        long delayMillis = latency.toMillis() + (jitter.isZero() ? 0 : random.nextLong(jitter.toMillis() + 1));
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (random.nextDouble() < errorRate) {
+            exchange.sendResponseHeaders(500, -1);
+            exchange.close();
+            return;
+        }
+
+        String city = cityParameter(exchange.getRequestURI().getRawQuery());
+        // Locale.ROOT keeps the decimal point a dot, the city name is escaped for use inside a JSON string
+        byte[] body = String.format(Locale.ROOT, RESPONSE, new String(JsonStringEncoder.getInstance().quoteAsString(city)),
+                random.nextDouble(-10, 35)).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream outputStream = exchange.getResponseBody()) {
+            outputStream.write(body);
+        }
+    }
+
+    private static String cityParameter(String query) {
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("q=")) {
+                    return URLDecoder.decode(parameter.substring(2), StandardCharsets.UTF_8);
+                }
+            }
+        }
+        return "";
+    }
+
+}
@@ -0,0 +1,86 @@
+package rs.challenge.basf.configuration;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayDataSource;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+@Configuration
+public class DataSourceConfiguration {
+
+    @Value("${datasource.replicas.urls:}")
+    private List<String> replicaUrls;
+    @Value("${datasource.replicas.read-your-writes:2s}")
+    private Duration readYourWrites;
+    @Value("${datasource.replicas.connection-timeout:1s}")
+    private Duration replicaConnectionTimeout;
+    @Value("${datasource.pool.connections-per-core:0}")
+    private int connectionsPerCore;
+
+    // Writes, migrations and anything outside a read-only transaction
+    @Bean(destroyMethod = "close")
+    @FlywayDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        if (connectionsPerCore > 0) {
+            // A fixed pool sized from the core count, an explicit spring.datasource.hikari.* setting still wins
+            int poolSize = Runtime.getRuntime().availableProcessors() * connectionsPerCore + 1;
+            dataSource.setMaximumPoolSize(poolSize);
+            dataSource.setMinimumIdle(poolSize);
+        }
+        return dataSource;
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource routingDataSource(HikariDataSource primaryDataSource, MeterRegistry meterRegistry) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        for (String url : replicaUrls) {
+            if (url.isBlank()) {
+                continue;
+            }
+            String name = "replica-" + (replicas.size() + 1);
+            replicas.put(name, replicaDataSource(primaryDataSource, name, url.trim(), meterRegistry));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, readYourWrites,
+                replicaConnectionTimeout, meterRegistry);
+    }
+
+    // Routing needs the transaction's read-only flag, which is only set after the transaction manager asks for
+    // a connection. The proxy hands out a placeholder and picks the real target on the first statement.
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    private HikariDataSource replicaDataSource(HikariDataSource primary, String name, String url,
+                                               MeterRegistry meterRegistry) {
+        HikariConfig config = new HikariConfig();
+        primary.copyStateTo(config);
+        config.setPoolName(name);
+        config.setJdbcUrl(url);
+        config.setReadOnly(true);
+        config.setConnectionTimeout(replicaConnectionTimeout.toMillis());
+        // A replica that is down at startup only stays out of rotation instead of failing the application
+        config.setInitializationFailTimeout(-1);
+        config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+        return new HikariDataSource(config);
+    }
+
+}
@@ -0,0 +1,185 @@
+package rs.challenge.basf.configuration;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.util.WebUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    public static final String PRIMARY = "primary";
+    // Carries the end of a client's read-your-writes window, as epoch millis, to its next requests
+    public static final String READ_YOUR_WRITES_COOKIE = "primary-reads-until";
+
+    private final DataSource primary;
+    private final Map<String, DataSource> replicas;
+    private final Duration readYourWrites;
+    private final int validationTimeoutSeconds;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter primaryRoutes;
+    private final Counter replicaRoutes;
+
+    private volatile List<String> healthyReplicas;
+
+    public ReplicaRoutingDataSource(DataSource primary, Map<String, DataSource> replicas, Duration readYourWrites,
+                                    Duration validationTimeout, MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.readYourWrites = readYourWrites;
+        this.validationTimeoutSeconds = (int) Math.max(1, validationTimeout.toSeconds());
+        // Replicas start out healthy, the first check runs right after startup
+        this.healthyReplicas = List.copyOf(replicas.keySet());
+
+        Map<Object, Object> targets = new HashMap<>(replicas);
+        targets.put(PRIMARY, primary);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+
+        primaryRoutes = meterRegistry.counter("datasource.routing", "target", PRIMARY);
+        replicaRoutes = meterRegistry.counter("datasource.routing", "target", "replica");
+        Gauge.builder("datasource.replicas.healthy", this, dataSource -> dataSource.healthyReplicas.size())
+                .register(meterRegistry);
+    }
+
+    // Called once per physical connection. Behind LazyConnectionDataSourceProxy that is the first statement
+    // of a transaction, when its read-only flag is already known.
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (TransactionSynchronizationManager.isActualTransactionActive()) {
+                recordWrite();
+            }
+            primaryRoutes.increment();
+            return PRIMARY;
+        }
+
+        List<String> healthy = healthyReplicas;
+        // Replicas may lag behind, a client's reads shortly after its own write go to the primary so they see it
+        if (healthy.isEmpty() || readsFromPrimary()) {
+            primaryRoutes.increment();
+            return PRIMARY;
+        }
+        replicaRoutes.increment();
+        return healthy.get(Math.floorMod(next.getAndIncrement(), healthy.size()));
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        String key = (String) determineCurrentLookupKey();
+        if (PRIMARY.equals(key)) {
+            return primary.getConnection();
+        }
+        try {
+            return replicas.get(key).getConnection();
+        } catch (SQLException e) {
+            // Taken out of rotation until the next health check passes, this read falls back to the primary
+            log.warn("Replica {} is unavailable, reading from the primary: {}", key, e.getMessage());
+            healthyReplicas = healthyReplicas.stream().filter(name -> !name.equals(key)).toList();
+            return primary.getConnection();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${datasource.replicas.health-check-interval:PT5S}")
+    public void checkReplicas() {
+        List<String> healthy = replicas.keySet().stream()
+                .filter(this::isHealthy)
+                .toList();
+        if (!healthy.equals(healthyReplicas)) {
+            log.info("Healthy replicas changed from {} to {}", healthyReplicas, healthy);
+        }
+        healthyReplicas = healthy;
+    }
+
+    public List<String> getHealthyReplicas() {
+        return healthyReplicas;
+    }
+
+    @Override
+    public void close() {
+        replicas.values().forEach(replica -> {
+            if (replica instanceof HikariDataSource hikariDataSource) {
+                hikariDataSource.close();
+            }
+        });
+    }
+
+    private boolean isHealthy(String name) {
+        try (Connection connection = replicas.get(name).getConnection()) {
+            return connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            log.debug("Replica {} failed its health check: {}", name, e.getMessage());
+            return false;
+        }
+    }
+
+    // Only the writing client is pinned to the primary, other clients and background work keep using replicas
+    private void recordWrite() {
+        if (replicas.isEmpty() || readYourWrites.isZero()
+                || !(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // The window has to start at commit, until then replicas cannot have the change anyway
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    markWriter(attributes);
+                }
+            });
+        } else {
+            markWriter(attributes);
+        }
+    }
+
+    private void markWriter(ServletRequestAttributes attributes) {
+        // One cookie per request, later commits in the same request only extend the window for this request
+        boolean marked = attributes.getAttribute(READ_YOUR_WRITES_COOKIE, RequestAttributes.SCOPE_REQUEST) != null;
+        long until = System.currentTimeMillis() + readYourWrites.toMillis();
+        attributes.setAttribute(READ_YOUR_WRITES_COOKIE, until, RequestAttributes.SCOPE_REQUEST);
+        HttpServletResponse response = attributes.getResponse();
+        if (!marked && response != null && !response.isCommitted()) {
+            Cookie cookie = new Cookie(READ_YOUR_WRITES_COOKIE, Long.toString(until));
+            cookie.setMaxAge((int) Math.max(1, readYourWrites.toSeconds()));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            response.addCookie(cookie);
+        }
+    }
+
+    private boolean readsFromPrimary() {
+        if (!(RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attributes)) {
+            return false;
+        }
+        Object until = attributes.getAttribute(READ_YOUR_WRITES_COOKIE, RequestAttributes.SCOPE_REQUEST);
+        if (until == null) {
+            Cookie cookie = WebUtils.getCookie(attributes.getRequest(), READ_YOUR_WRITES_COOKIE);
+            until = cookie == null ? null : NumberUtils.toLong(cookie.getValue());
+        }
+        return until != null && (Long) until > System.currentTimeMillis();
+    }
+
+}
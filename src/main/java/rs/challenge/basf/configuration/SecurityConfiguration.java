@@ -1,5 +1,6 @@
 package rs.challenge.basf.configuration;
 
+import jakarta.servlet.DispatcherType;
 import org.apache.catalina.filters.CorsFilter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -33,7 +34,9 @@ public class SecurityConfiguration {
 
         http.securityMatcher("/**")
                 .authorizeHttpRequests(rmr -> {
+                    rmr.dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll();
                     rmr.requestMatchers("/auth/**").permitAll();
+                    rmr.requestMatchers("/actuator/health").permitAll();
                     rmr.anyRequest().authenticated();
                 }).sessionManagement(smc -> {
                     smc.sessionCreationPolicy(SessionCreationPolicy.STATELESS);
@@ -0,0 +1,31 @@
+package rs.challenge.basf.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import rs.challenge.basf.service.CityImportService;
+
+// Any authenticated user could trigger a full import, so the endpoint stays off until there is an admin role
+@RestController
+@RequestMapping("/admin")
+@ConditionalOnProperty(name = "import.cities.endpoint.enabled", havingValue = "true")
+public class AdminController {
+
+    private final CityImportService cityImportService;
+
+    public AdminController(CityImportService cityImportService) {
+        this.cityImportService = cityImportService;
+    }
+
+    @PostMapping("/import")
+    public ResponseEntity<?> importCities() {
+        try {
+            return ResponseEntity.ok(cityImportService.importCities());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(e.getMessage());
+        }
+    }
+
+}
@@ -1,44 +1,154 @@
 package rs.challenge.basf.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.validation.Valid;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import rs.challenge.basf.model.City;
+import rs.challenge.basf.model.CitySummary;
 import rs.challenge.basf.request.CreateCityRequest;
+import rs.challenge.basf.request.DeleteCityRequest;
+import rs.challenge.basf.request.TemperaturesRequest;
 import rs.challenge.basf.request.UpdateCityRequest;
+import rs.challenge.basf.response.CityPageResponse;
+import rs.challenge.basf.service.CityBatchService;
+import rs.challenge.basf.service.CitySearchService;
 import rs.challenge.basf.service.CityService;
+import rs.challenge.basf.service.WeatherService;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/api")
 public class CityController {
 
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    // Lists change only on writes, clients revalidate every time and mostly get a 304 back
+    private static final CacheControl LIST_CACHE_CONTROL = CacheControl.noCache();
+
     private final CityService cityService;
+    private final CitySearchService citySearchService;
+    private final CityBatchService cityBatchService;
+    private final ObjectMapper objectMapper;
 
-    public CityController(CityService cityService) {
+    public CityController(CityService cityService, CitySearchService citySearchService,
+                          CityBatchService cityBatchService, ObjectMapper objectMapper) {
         this.cityService = cityService;
+        this.citySearchService = citySearchService;
+        this.cityBatchService = cityBatchService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping()
-    public ResponseEntity<?> findAll() {
-        return ResponseEntity.ok(cityService.findAll());
+    public ResponseEntity<?> findAll(@RequestParam(defaultValue = "0") Long after,
+                                     @RequestParam(defaultValue = "100") int size,
+                                     WebRequest webRequest) {
+        String etag = cityService.listETag("json");
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            return notModified(LIST_CACHE_CONTROL).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        List<CitySummary> cities = cityService.findAfter(after, size);
+        Long nextCursor = cities.size() < CityService.pageSize(size)
+                ? null : cities.get(cities.size() - 1).getId();
+        // checkNotModified already put the ETag header on the response
+        return ResponseEntity.ok()
+                .cacheControl(LIST_CACHE_CONTROL)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(new CityPageResponse(cities, nextCursor));
+    }
+
+    @GetMapping(produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAll(WebRequest webRequest) {
+        String etag = cityService.listETag("ndjson");
+        if (etag != null && webRequest.checkNotModified(etag)) {
+            return notModified(LIST_CACHE_CONTROL).varyBy(HttpHeaders.ACCEPT).build();
+        }
+        ObjectWriter writer = objectMapper.writerFor(CitySummary.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.setRootValueSeparator(null);
+                cityService.streamAll(city -> {
+                    try {
+                        writer.writeValue(generator, city);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(APPLICATION_NDJSON)
+                .cacheControl(LIST_CACHE_CONTROL)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(body);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam(required = false) String q,
+                                    @RequestParam(defaultValue = "10") int limit) {
+        if (StringUtils.isBlank(q)) {
+            return ResponseEntity.badRequest().body("Query parameter q is required.");
+        }
+        return ResponseEntity.ok(citySearchService.search(q, limit));
     }
 
     @GetMapping("/{name}")
-    public ResponseEntity<?> findByName(@PathVariable("name") String cityName) {
+    public CompletableFuture<ResponseEntity<?>> findByName(@PathVariable("name") String cityName,
+                                                           WebRequest webRequest) {
+        String etag = cityService.cityETag();
+        CacheControl cacheControl = CacheControl.maxAge(cityService.getTemperatureMaxAge());
+        // Only a city that exists can be unchanged. The catalog check is in memory, the weather upstream is skipped.
+        if (etag != null && cityService.exists(cityName) && webRequest.checkNotModified(etag)) {
+            return CompletableFuture.completedFuture(notModified(cacheControl).build());
+        }
+        return cityService.findByNameAsync(cityName)
+                .<ResponseEntity<?>>thenApply(city -> ResponseEntity.ok().cacheControl(cacheControl).body(city))
+                .exceptionally(ex -> {
+                    Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                    if (cause instanceof NoSuchElementException) {
+                        return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No data for given city.");
+                    }
+                    if (WeatherService.isUnavailable(cause)) {
+                        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(CityService.WEATHER_UNAVAILABLE);
+                    }
+                    return ResponseEntity.internalServerError().body(cause.getMessage());
+                });
+    }
+
+    @PostMapping("/temperatures")
+    public CompletableFuture<ResponseEntity<?>> findTemperatures(@Valid @RequestBody TemperaturesRequest request) {
         try {
-            City city = cityService.findByName(cityName);
-            return ResponseEntity.ok(city);
-        } catch (NoSuchElementException e) {
-            return ResponseEntity.status(HttpStatus.NOT_FOUND).body("No data for given city.");
-        } catch (Exception ex) {
-            return ResponseEntity.internalServerError().body(ex.getMessage());
+            return cityService.findTemperatures(request.getNames())
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(ex -> {
+                        Throwable cause = ex instanceof CompletionException ? ex.getCause() : ex;
+                        return ResponseEntity.internalServerError().body(cause.getMessage());
+                    });
+        } catch (IllegalArgumentException iae) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().body(iae.getMessage()));
         }
     }
 
@@ -86,6 +196,44 @@ public class CityController {
         }
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<?> createCities(@RequestBody List<CreateCityRequest> requests) {
+        try {
+            return ResponseEntity.ok(cityBatchService.create(requests));
+        } catch (IllegalArgumentException iae) {
+            return ResponseEntity.badRequest().body(iae.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(e.getMessage());
+        }
+    }
+
+    @PutMapping("/batch")
+    public ResponseEntity<?> updateCities(@RequestBody List<UpdateCityRequest> requests) {
+        try {
+            return ResponseEntity.ok(cityBatchService.update(requests));
+        } catch (IllegalArgumentException iae) {
+            return ResponseEntity.badRequest().body(iae.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(e.getMessage());
+        }
+    }
+
+    @DeleteMapping("/batch")
+    public ResponseEntity<?> deleteCities(@RequestBody List<DeleteCityRequest> requests) {
+        try {
+            return ResponseEntity.ok(cityBatchService.delete(requests));
+        } catch (IllegalArgumentException iae) {
+            return ResponseEntity.badRequest().body(iae.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(e.getMessage());
+        }
+    }
+
+    // checkNotModified has already set the status and the ETag header
+    private static ResponseEntity.HeadersBuilder<?> notModified(CacheControl cacheControl) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl);
+    }
+
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public Map<String, String> handleValidationExceptions(
@@ -0,0 +1,57 @@
+package rs.challenge.basf.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import rs.challenge.basf.service.CityStatsService;
+
+@RestController
+@RequestMapping("/api/stats")
+public class StatsController {
+
+    private final CityStatsService cityStatsService;
+
+    public StatsController(CityStatsService cityStatsService) {
+        this.cityStatsService = cityStatsService;
+    }
+
+    @GetMapping()
+    public ResponseEntity<?> totals() {
+        try {
+            return ResponseEntity.ok(cityStatsService.totals());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/top")
+    public ResponseEntity<?> mostPopulated(@RequestParam(required = false) String country,
+                                           @RequestParam(defaultValue = "10") int limit) {
+        try {
+            return ResponseEntity.ok(cityStatsService.mostPopulated(country, limit));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/countries")
+    public ResponseEntity<?> byCountry() {
+        try {
+            return ResponseEntity.ok(cityStatsService.byCountry());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(e.getMessage());
+        }
+    }
+
+    @GetMapping("/regions")
+    public ResponseEntity<?> byRegion(@RequestParam String country) {
+        try {
+            return ResponseEntity.ok(cityStatsService.byRegion(country));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(e.getMessage());
+        }
+    }
+
+}
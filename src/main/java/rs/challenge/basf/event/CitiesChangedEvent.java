@@ -0,0 +1,26 @@
+package rs.challenge.basf.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import rs.challenge.basf.model.City;
+
+import java.util.List;
+
+// One committed chunk of a batch write, listeners handle the whole chunk at once instead of city by city
+@Getter
+@AllArgsConstructor
+public class CitiesChangedEvent {
+
+    private final CityChangedEvent.Type type;
+    private final List<City> cities;
+    private final boolean remote;
+
+    public CitiesChangedEvent(CityChangedEvent.Type type, List<City> cities) {
+        this(type, cities, false);
+    }
+
+    public List<CityChangedEvent> toCityEvents() {
+        return cities.stream().map(city -> new CityChangedEvent(type, city, remote)).toList();
+    }
+
+}
@@ -0,0 +1,17 @@
+package rs.challenge.basf.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class CitiesImportedEvent {
+
+    private final long rowsInserted;
+    private final boolean remote;
+
+    public CitiesImportedEvent(long rowsInserted) {
+        this(rowsInserted, false);
+    }
+
+}
@@ -0,0 +1,24 @@
+package rs.challenge.basf.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import rs.challenge.basf.model.City;
+
+@Getter
+@AllArgsConstructor
+public class CityChangedEvent {
+
+    public enum Type {
+        CREATED, UPDATED, DELETED
+    }
+
+    private final Type type;
+    private final City city;
+    // Received from another instance, these are applied locally but not broadcast again
+    private final boolean remote;
+
+    public CityChangedEvent(Type type, City city) {
+        this(type, city, false);
+    }
+
+}
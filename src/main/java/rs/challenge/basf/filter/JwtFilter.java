@@ -1,17 +1,23 @@
 package rs.challenge.basf.filter;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 import rs.challenge.basf.service.UserService;
 import rs.challenge.basf.util.JwtUtil;
+import rs.challenge.basf.util.VerifiedToken;
 
 import java.io.IOException;
 
@@ -20,29 +26,48 @@ public class JwtFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserService userService;
+    private final Timer filterTimer;
 
-    public JwtFilter(JwtUtil jwtUtil, UserService userService) {
+    @Value("${security.jwt.stateless:false}")
+    private boolean stateless;
+
+    public JwtFilter(JwtUtil jwtUtil, UserService userService, MeterRegistry meterRegistry) {
         this.jwtUtil = jwtUtil;
         this.userService = userService;
+        this.filterTimer = meterRegistry.timer("auth.jwt.filter");
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
 
+        Timer.Sample sample = Timer.start();
+        try {
+            authenticate(request);
+        } finally {
+            sample.stop(filterTimer);
+        }
+
+        filterChain.doFilter(request, response);
+
+    }
+
+    private void authenticate(HttpServletRequest request) {
+
         String authHeader = request.getHeader("Authorization");
-        String jwt = null;
-        String email = null;
+        VerifiedToken token = null;
 
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            jwt = authHeader.substring(7);
-            email = jwtUtil.extractEmail(jwt);
+            token = jwtUtil.verify(authHeader.substring(7));
         }
 
-        if (email != null) {
+        if (token != null && token.getSubject() != null) {
 
-            UserDetails userDetails = this.userService.loadUserByUsername(email);
+            // In stateless mode the signed token is trusted as is and the users table is not consulted
+            UserDetails userDetails = stateless
+                    ? toUserDetails(token)
+                    : this.userService.loadUserByUsername(token.getSubject());
 
-            if (jwtUtil.validateToken(jwt, userDetails)) {
+            if (jwtUtil.validateToken(token, userDetails)) {
 
                 UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = new UsernamePasswordAuthenticationToken(
                         userDetails, null, userDetails.getAuthorities());
@@ -52,9 +77,11 @@ public class JwtFilter extends OncePerRequestFilter {
                 SecurityContextHolder.getContext().setAuthentication(usernamePasswordAuthenticationToken);
             }
         }
+    }
 
-        filterChain.doFilter(request, response);
-
+    private UserDetails toUserDetails(VerifiedToken token) {
+        return new User(token.getSubject(), "",
+                AuthorityUtils.createAuthorityList(token.getAuthorities()));
     }
 
 }
@@ -1,12 +1,8 @@
 package rs.challenge.basf.model;
 
-import com.fasterxml.jackson.databind.annotation.JsonSerialize;
-import com.fasterxml.jackson.databind.ser.std.ToStringSerializer;
 import jakarta.persistence.*;
 import lombok.*;
 
-import java.math.BigInteger;
-
 @Entity
 @Getter
 @Setter
@@ -17,7 +13,8 @@ import java.math.BigInteger;
 public class City {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "cities_seq")
+    @SequenceGenerator(name = "cities_seq", sequenceName = "cities_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "name", unique = true)
@@ -27,10 +24,11 @@ public class City {
     @Column(name = "state/region")
     private String stateRegion;
     @Column(name = "population")
-    @JsonSerialize(using = ToStringSerializer.class)
-    private BigInteger population;
+    private Long population;
 
     @Transient
     private int temperature;
+    @Transient
+    private boolean temperatureStale;
 
 }
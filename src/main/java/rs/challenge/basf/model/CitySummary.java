@@ -0,0 +1,21 @@
+package rs.challenge.basf.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class CitySummary {
+
+    private final Long id;
+    private final String name;
+    private final String country;
+    private final String stateRegion;
+    private final Long population;
+
+    public static CitySummary from(City city) {
+        return new CitySummary(city.getId(), city.getName(), city.getCountry(),
+                city.getStateRegion(), city.getPopulation());
+    }
+
+}
@@ -0,0 +1,13 @@
+package rs.challenge.basf.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class TemperatureReading {
+
+    private final double value;
+    private final boolean stale;
+
+}
@@ -0,0 +1,62 @@
+package rs.challenge.basf.provider;
+
+import jakarta.annotation.PostConstruct;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+@Component
+@ConditionalOnProperty(name = "api.weather.file.location")
+public class FileWeatherProvider implements WeatherProvider {
+
+    public static final String NAME = "file";
+
+    private static final CSVFormat CSV_FORMAT = CSVFormat.DEFAULT.builder()
+            .setHeader("city", "temp_c")
+            .setSkipHeaderRecord(true)
+            .setTrim(true)
+            .build();
+
+    @Value("${api.weather.file.location}")
+    private Resource location;
+
+    private Map<String, Double> temperatures;
+
+    @PostConstruct
+    public void load() throws IOException {
+        Map<String, Double> loaded = new HashMap<>();
+        try (Reader reader = new InputStreamReader(location.getInputStream(), StandardCharsets.UTF_8)) {
+            for (CSVRecord record : CSV_FORMAT.parse(reader)) {
+                loaded.put(record.get("city").toLowerCase(Locale.ROOT), Double.parseDouble(record.get("temp_c")));
+            }
+        }
+        temperatures = loaded;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public double fetchTemperature(String city) {
+        Double temperature = temperatures.get(city);
+        if (temperature == null) {
+            throw new RestClientException("Error fetching temperature data for city " + city + ".");
+        }
+        return temperature;
+    }
+
+}
@@ -0,0 +1,57 @@
+package rs.challenge.basf.provider;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import rs.challenge.basf.util.WeatherResponseParser;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+public class WeatherApiProvider implements WeatherProvider {
+
+    public static final String NAME = "weatherapi";
+
+    @Value("${api.weather.key}")
+    private String WEATHER_API_KEY;
+    @Value("${api.weather.uri}")
+    private String WEATHER_API_URI;
+
+    private final RestTemplate restTemplate;
+
+    public WeatherApiProvider(RestTemplate weatherRestTemplate) {
+        this.restTemplate = weatherRestTemplate;
+    }
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public double fetchTemperature(String city) {
+
+        String uriWithParams = WEATHER_API_URI + "?q={city}&key={key}";
+
+        Map<String, String> queryParams = new HashMap<>();
+        queryParams.put("city", city);
+        queryParams.put("key", WEATHER_API_KEY);
+
+        try {
+            return restTemplate.execute(uriWithParams, HttpMethod.GET,
+                    request -> request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON)),
+                    response -> WeatherResponseParser.readTemperature(response.getBody()),
+                    queryParams);
+        } catch (Exception e) {
+            // The cause tells the circuit breaker an unknown city (4xx) apart from an upstream failure
+            throw new RestClientException("Error fetching temperature data for city " + city + ".", e);
+        }
+
+    }
+
+}
@@ -0,0 +1,11 @@
+package rs.challenge.basf.provider;
+
+public interface WeatherProvider {
+
+    // Name used to select the provider in api.weather.provider.primary and api.weather.hedge.provider
+    String getName();
+
+    // Current temperature in degrees Celsius, city is already trimmed and lower-cased
+    double fetchTemperature(String city);
+
+}
@@ -0,0 +1,35 @@
+package rs.challenge.basf.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+@Component
+public class CityIdGenerator {
+
+    public static final int ALLOCATION_SIZE = 50;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CityIdGenerator(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Ids for rows written over plain JDBC. Each nextval of n reserves n - 49 .. n,
+    // the same blocks Hibernate's pooled optimizer takes, so both can share cities_seq.
+    public long[] allocate(int count) {
+        long[] ids = new long[count];
+        if (count == 0) {
+            return ids;
+        }
+        int blocks = (count + ALLOCATION_SIZE - 1) / ALLOCATION_SIZE;
+        List<Long> highs = jdbcTemplate.queryForList(
+                "SELECT nextval('cities_seq') FROM generate_series(1, ?)", Long.class, blocks);
+        for (int i = 0; i < count; i++) {
+            ids[i] = highs.get(i / ALLOCATION_SIZE) - ALLOCATION_SIZE + 1 + i % ALLOCATION_SIZE;
+        }
+        return ids;
+    }
+
+}
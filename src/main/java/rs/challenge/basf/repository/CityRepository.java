@@ -1,12 +1,65 @@
 package rs.challenge.basf.repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import rs.challenge.basf.model.City;
+import rs.challenge.basf.model.CitySummary;
+import rs.challenge.basf.response.PopulationRollupResponse;
+import rs.challenge.basf.response.PopulationTotalsResponse;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
+// Declared query methods get no transaction of their own, read-only ones can be served by a replica
+@Transactional(readOnly = true)
 public interface CityRepository extends JpaRepository<City, Long> {
-    Optional<City> findByName(String name);
+
+    // Names are matched like the catalog matches them, callers pass keys from CityCatalog.normalize. The
+    // expression is the one cities_name_normalized_key indexes.
+    @Query(value = "SELECT * FROM cities WHERE lower(btrim(name)) = :key", nativeQuery = true)
+    Optional<City> findByNormalizedName(@Param("key") String key);
+
+    @Query(value = "SELECT * FROM cities WHERE lower(btrim(name)) IN (:keys)", nativeQuery = true)
+    List<City> findByNormalizedNameIn(@Param("keys") Collection<String> keys);
+
+    // List endpoints read projections, which skip the persistence context and dirty checking entirely
+    @Query("select new rs.challenge.basf.model.CitySummary(c.id, c.name, c.country, c.stateRegion, c.population) " +
+            "from City c where c.id > :id order by c.id")
+    List<CitySummary> findSummariesAfter(@Param("id") Long id, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("select new rs.challenge.basf.model.CitySummary(c.id, c.name, c.country, c.stateRegion, c.population) " +
+            "from City c order by c.id")
+    Stream<CitySummary> streamSummariesOrderById();
+
+    @Query("select new rs.challenge.basf.response.PopulationTotalsResponse(count(c), count(distinct c.country), " +
+            "coalesce(sum(c.population), 0)) from City c")
+    PopulationTotalsResponse findPopulationTotals();
+
+    @Query("select new rs.challenge.basf.response.PopulationRollupResponse(c.country, count(c), " +
+            "coalesce(sum(c.population), 0)) from City c group by c.country order by sum(c.population) desc nulls last")
+    List<PopulationRollupResponse> findPopulationByCountry();
+
+    @Query("select new rs.challenge.basf.response.PopulationRollupResponse(c.country, c.stateRegion, count(c), " +
+            "coalesce(sum(c.population), 0)) from City c where c.country = :country group by c.country, c.stateRegion " +
+            "order by sum(c.population) desc nulls last")
+    List<PopulationRollupResponse> findPopulationByRegion(@Param("country") String country);
+
+    @Query("select new rs.challenge.basf.model.CitySummary(c.id, c.name, c.country, c.stateRegion, c.population) " +
+            "from City c where c.population is not null order by c.population desc")
+    List<CitySummary> findMostPopulated(Pageable pageable);
+
+    @Query("select new rs.challenge.basf.model.CitySummary(c.id, c.name, c.country, c.stateRegion, c.population) " +
+            "from City c where c.country = :country and c.population is not null order by c.population desc")
+    List<CitySummary> findMostPopulatedIn(@Param("country") String country, Pageable pageable);
 }
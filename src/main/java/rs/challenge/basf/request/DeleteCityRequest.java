@@ -0,0 +1,15 @@
+package rs.challenge.basf.request;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class DeleteCityRequest {
+
+    private Long id;
+    private String name;
+
+}
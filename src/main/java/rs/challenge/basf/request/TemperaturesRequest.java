@@ -0,0 +1,17 @@
+package rs.challenge.basf.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class TemperaturesRequest {
+
+    @NotEmpty(message = "Names are mandatory")
+    private List<@NotBlank(message = "Names must not be blank") String> names;
+
+}
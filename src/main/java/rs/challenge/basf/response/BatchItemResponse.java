@@ -0,0 +1,17 @@
+package rs.challenge.basf.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class BatchItemResponse {
+
+    private int index;
+    private int status;
+    private Long id;
+    private String error;
+
+}
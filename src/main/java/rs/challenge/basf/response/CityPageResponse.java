@@ -0,0 +1,18 @@
+package rs.challenge.basf.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+import rs.challenge.basf.model.CitySummary;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class CityPageResponse {
+
+    private List<CitySummary> cities;
+    private Long nextCursor;
+
+}
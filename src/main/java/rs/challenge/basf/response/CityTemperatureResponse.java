@@ -0,0 +1,17 @@
+package rs.challenge.basf.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class CityTemperatureResponse {
+
+    private String name;
+    private Integer temperature;
+    private boolean stale;
+    private String error;
+
+}
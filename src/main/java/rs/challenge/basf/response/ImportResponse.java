@@ -0,0 +1,17 @@
+package rs.challenge.basf.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class ImportResponse {
+
+    private long rowsRead;
+    private long rowsInserted;
+    private long elapsedMillis;
+    private long rowsPerSecond;
+
+}
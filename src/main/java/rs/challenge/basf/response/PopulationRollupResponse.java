@@ -0,0 +1,23 @@
+package rs.challenge.basf.response;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class PopulationRollupResponse {
+
+    private String country;
+    private String stateRegion;
+    private long cities;
+    private long population;
+
+    public PopulationRollupResponse(String country, long cities, long population) {
+        this(country, null, cities, population);
+    }
+
+}
@@ -0,0 +1,16 @@
+package rs.challenge.basf.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+public class PopulationTotalsResponse {
+
+    private long cities;
+    private long countries;
+    private long population;
+
+}
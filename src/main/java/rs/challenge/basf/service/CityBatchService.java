@@ -0,0 +1,314 @@
+package rs.challenge.basf.service;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import rs.challenge.basf.event.CitiesChangedEvent;
+import rs.challenge.basf.event.CityChangedEvent;
+import rs.challenge.basf.model.City;
+import rs.challenge.basf.repository.CityIdGenerator;
+import rs.challenge.basf.repository.CityRepository;
+import rs.challenge.basf.request.CreateCityRequest;
+import rs.challenge.basf.request.DeleteCityRequest;
+import rs.challenge.basf.request.UpdateCityRequest;
+import rs.challenge.basf.response.BatchItemResponse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class CityBatchService {
+
+    // One statement per chunk. A name another writer inserted in the meantime, in any letter case, only skips its
+    // own row, and RETURNING tells which rows made it. Batched inserts are rewritten by the driver and report no
+    // row counts.
+    private static final String INSERT_CITIES = "INSERT INTO cities (id, name, country, \"state/region\", population) " +
+            "SELECT * FROM unnest(?::bigint[], ?::varchar[], ?::varchar[], ?::varchar[], ?::bigint[]) " +
+            "ON CONFLICT DO NOTHING RETURNING id";
+    private static final String UPDATE_CITY = "UPDATE cities SET name = ?, country = ?, \"state/region\" = ?, " +
+            "population = ? WHERE id = ?";
+    private static final String DELETE_CITY = "DELETE FROM cities WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CityRepository cityRepository;
+    private final CityCatalog cityCatalog;
+    private final CityIdGenerator cityIdGenerator;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${api.batch.max-items:5000}")
+    private int maxItems;
+    @Value("${api.batch.chunk-size:500}")
+    private int chunkSize;
+
+    public CityBatchService(JdbcTemplate jdbcTemplate, CityRepository cityRepository, CityCatalog cityCatalog,
+                            CityIdGenerator cityIdGenerator, TransactionTemplate transactionTemplate,
+                            ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cityRepository = cityRepository;
+        this.cityCatalog = cityCatalog;
+        this.cityIdGenerator = cityIdGenerator;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public List<BatchItemResponse> create(List<CreateCityRequest> requests) {
+
+        checkSize(requests);
+        BatchItemResponse[] results = new BatchItemResponse[requests.size()];
+
+        // Names are compared the way the catalog keys them, so "belgrade" clashes with "Belgrade"
+        Set<String> existing = findByNames(names(requests, CreateCityRequest::getName)).stream()
+                .map(city -> CityCatalog.normalize(city.getName()))
+                .collect(Collectors.toSet());
+        Set<String> seen = new HashSet<>();
+        List<Item> pending = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            CreateCityRequest request = requests.get(i);
+            if (request == null || StringUtils.isBlank(request.getName())) {
+                results[i] = failure(i, HttpStatus.BAD_REQUEST, "Name is mandatory.");
+            } else if (StringUtils.isBlank(request.getCountry())) {
+                results[i] = failure(i, HttpStatus.BAD_REQUEST, "Country is mandatory.");
+            } else if (parsePopulation(request.getPopulation()) == null) {
+                results[i] = failure(i, HttpStatus.BAD_REQUEST, "Population must be a whole number.");
+            } else if (existing.contains(CityCatalog.normalize(request.getName()))
+                    || !seen.add(CityCatalog.normalize(request.getName()))) {
+                results[i] = failure(i, HttpStatus.BAD_REQUEST, "City already exists.");
+            } else {
+                City city = new City();
+                city.setName(request.getName());
+                city.setCountry(request.getCountry());
+                city.setStateRegion(request.getStateRegion());
+                city.setPopulation(parsePopulation(request.getPopulation()));
+                pending.add(new Item(i, city));
+            }
+        }
+
+        write(pending, HttpStatus.CREATED, CityChangedEvent.Type.CREATED, this::insert,
+                "Error while trying to persist city.", results);
+        return Arrays.asList(results);
+    }
+
+    public List<BatchItemResponse> update(List<UpdateCityRequest> requests) {
+
+        checkSize(requests);
+        BatchItemResponse[] results = new BatchItemResponse[requests.size()];
+
+        Set<Long> ids = requests.stream()
+                .filter(Objects::nonNull)
+                .map(UpdateCityRequest::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, City> citiesById = cityRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(City::getId, Function.identity()));
+        Map<String, Long> idsByName = findByNames(names(requests, UpdateCityRequest::getName)).stream()
+                .collect(Collectors.toMap(city -> CityCatalog.normalize(city.getName()), City::getId,
+                        (first, second) -> first));
+        Set<Long> seen = new HashSet<>();
+        Map<String, Long> renamed = new HashMap<>();
+        List<Item> pending = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            UpdateCityRequest request = requests.get(i);
+            if (request == null || request.getId() == null) {
+                results[i] = failure(i, HttpStatus.BAD_REQUEST, "Id is mandatory.");
+                continue;
+            }
+            City city = citiesById.get(request.getId());
+            if (city == null) {
+                results[i] = failure(i, HttpStatus.NOT_FOUND, "No data for given city.");
+                continue;
+            }
+            if (!seen.add(city.getId())) {
+                results[i] = failure(i, HttpStatus.BAD_REQUEST, "City is updated more than once in this batch.");
+                continue;
+            }
+            if (StringUtils.isNotEmpty(request.getPopulation()) && parsePopulation(request.getPopulation()) == null) {
+                results[i] = failure(i, HttpStatus.BAD_REQUEST, "Population must be a whole number.");
+                continue;
+            }
+            if (StringUtils.isNotEmpty(request.getName())) {
+                String key = CityCatalog.normalize(request.getName());
+                Long owner = idsByName.getOrDefault(key, renamed.get(key));
+                if (owner != null && !owner.equals(city.getId())) {
+                    results[i] = failure(i, HttpStatus.BAD_REQUEST, "City already exists.");
+                    continue;
+                }
+                renamed.put(key, city.getId());
+                city.setName(request.getName());
+            }
+            if (StringUtils.isNotEmpty(request.getCountry())) {
+                city.setCountry(request.getCountry());
+            }
+            if (StringUtils.isNotEmpty(request.getPopulation())) {
+                city.setPopulation(parsePopulation(request.getPopulation()));
+            }
+            pending.add(new Item(i, city));
+        }
+
+        write(pending, HttpStatus.OK, CityChangedEvent.Type.UPDATED, chunk -> {
+                    jdbcTemplate.batchUpdate(UPDATE_CITY, chunk.stream().map(item -> new Object[]{item.city.getName(),
+                            item.city.getCountry(), item.city.getStateRegion(), item.city.getPopulation(),
+                            item.city.getId()}).toList());
+                    return List.of();
+                }, "Error while trying to update city.", results);
+        return Arrays.asList(results);
+    }
+
+    public List<BatchItemResponse> delete(List<DeleteCityRequest> requests) {
+
+        checkSize(requests);
+        BatchItemResponse[] results = new BatchItemResponse[requests.size()];
+
+        Set<Long> ids = requests.stream()
+                .filter(Objects::nonNull)
+                .map(DeleteCityRequest::getId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, City> citiesById = cityRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(City::getId, Function.identity()));
+        Map<String, City> citiesByName = findByNames(names(requests, DeleteCityRequest::getName))
+                .stream()
+                .collect(Collectors.toMap(city -> CityCatalog.normalize(city.getName()), Function.identity(),
+                        (first, second) -> first));
+        Set<Long> seen = new HashSet<>();
+        List<Item> pending = new ArrayList<>();
+
+        for (int i = 0; i < requests.size(); i++) {
+            DeleteCityRequest request = requests.get(i);
+            if (request == null || (request.getId() == null && request.getName() == null)) {
+                results[i] = failure(i, HttpStatus.BAD_REQUEST, "Id or Name is required.");
+                continue;
+            }
+            City city = request.getId() != null
+                    ? citiesById.get(request.getId()) : citiesByName.get(CityCatalog.normalize(request.getName()));
+            if (city == null) {
+                results[i] = failure(i, HttpStatus.NOT_FOUND, "No data for given city.");
+            } else if (!seen.add(city.getId())) {
+                results[i] = failure(i, HttpStatus.BAD_REQUEST, "City is deleted more than once in this batch.");
+            } else {
+                pending.add(new Item(i, city));
+            }
+        }
+
+        write(pending, HttpStatus.OK, CityChangedEvent.Type.DELETED, chunk -> {
+                    jdbcTemplate.batchUpdate(DELETE_CITY, chunk.stream().map(item -> new Object[]{item.city.getId()})
+                            .toList());
+                    return List.of();
+                }, "Error while trying to delete city.", results);
+        return Arrays.asList(results);
+    }
+
+    // Each chunk is one transaction and one JDBC batch, a failing chunk only fails its own items.
+    // The statement returns the items it skipped, those are conflicts. Listeners get one event per committed chunk.
+    private void write(List<Item> items, HttpStatus status, CityChangedEvent.Type type,
+                       Function<List<Item>, List<Item>> statement, String error, BatchItemResponse[] results) {
+        for (int from = 0; from < items.size(); from += chunkSize) {
+            List<Item> chunk = items.subList(from, Math.min(from + chunkSize, items.size()));
+            Set<Item> skipped;
+            try {
+                skipped = new HashSet<>(transactionTemplate.execute(transaction -> statement.apply(chunk)));
+            } catch (Exception e) {
+                chunk.forEach(item -> results[item.index] = failure(item.index, HttpStatus.INTERNAL_SERVER_ERROR, error));
+                continue;
+            }
+            List<City> cities = new ArrayList<>(chunk.size());
+            for (Item item : chunk) {
+                if (skipped.contains(item)) {
+                    results[item.index] = failure(item.index, HttpStatus.CONFLICT, "City already exists.");
+                    continue;
+                }
+                results[item.index] = new BatchItemResponse(item.index, status.value(), item.city.getId(), null);
+                cities.add(item.city);
+            }
+            if (!cities.isEmpty()) {
+                eventPublisher.publishEvent(new CitiesChangedEvent(type, cities));
+            }
+        }
+    }
+
+    private List<Item> insert(List<Item> chunk) {
+        long[] ids = cityIdGenerator.allocate(chunk.size());
+        Long[] idColumn = new Long[chunk.size()];
+        String[] names = new String[chunk.size()];
+        String[] countries = new String[chunk.size()];
+        String[] regions = new String[chunk.size()];
+        Long[] populations = new Long[chunk.size()];
+        for (int i = 0; i < chunk.size(); i++) {
+            City city = chunk.get(i).city;
+            city.setId(ids[i]);
+            idColumn[i] = city.getId();
+            names[i] = city.getName();
+            countries[i] = city.getCountry();
+            regions[i] = city.getStateRegion();
+            populations[i] = city.getPopulation();
+        }
+        Set<Long> inserted = new HashSet<>(jdbcTemplate.queryForList(INSERT_CITIES, Long.class,
+                idColumn, names, countries, regions, populations));
+        return chunk.stream().filter(item -> !inserted.contains(item.city.getId())).toList();
+    }
+
+    private void checkSize(List<?> requests) {
+        if (requests == null || requests.isEmpty()) {
+            throw new IllegalArgumentException("At least one city is required.");
+        }
+        if (requests.size() > maxItems) {
+            throw new IllegalArgumentException("At most " + maxItems + " cities can be changed at once.");
+        }
+    }
+
+    // The repository only covers the startup window and matches normalized names like the catalog
+    private List<City> findByNames(Set<String> names) {
+        if (names.isEmpty()) {
+            return List.of();
+        }
+        return cityCatalog.isLoaded() ? cityCatalog.findByNameIn(names)
+                : cityRepository.findByNormalizedNameIn(names.stream().map(CityCatalog::normalize).toList());
+    }
+
+    private static <T> Set<String> names(List<T> requests, Function<T, String> name) {
+        return requests.stream()
+                .filter(Objects::nonNull)
+                .map(name)
+                .filter(StringUtils::isNotEmpty)
+                .collect(Collectors.toSet());
+    }
+
+    private static Long parsePopulation(String population) {
+        try {
+            return Long.valueOf(population.trim());
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static BatchItemResponse failure(int index, HttpStatus status, String error) {
+        return new BatchItemResponse(index, status.value(), null, error);
+    }
+
+    private static final class Item {
+
+        private final int index;
+        private final City city;
+
+        private Item(int index, City city) {
+            this.index = index;
+            this.city = city;
+        }
+
+    }
+
+}
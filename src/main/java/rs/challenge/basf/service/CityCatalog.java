@@ -0,0 +1,207 @@
+package rs.challenge.basf.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import rs.challenge.basf.event.CitiesChangedEvent;
+import rs.challenge.basf.event.CitiesImportedEvent;
+import rs.challenge.basf.event.CityChangedEvent;
+import rs.challenge.basf.model.City;
+import rs.challenge.basf.model.CitySummary;
+import rs.challenge.basf.repository.CityRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Service
+public class CityCatalog {
+
+    private static final Logger log = LoggerFactory.getLogger(CityCatalog.class);
+
+    // Rough per-city footprint: the City object, its three strings, the population and two map entries
+    private static final long CITY_OVERHEAD_BYTES = 32 + 3 * 40 + 40 + 2 * 48;
+
+    private final CityRepository cityRepository;
+    // Versions restart with every process, the instance part keeps them from colliding across restarts and replicas
+    private final String instanceTag = UUID.randomUUID().toString().substring(0, 8);
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile Index index;
+    private final Object changeLock = new Object();
+    // Changes applied while a reload reads the table, replayed onto the new index before it is swapped in
+    private List<CityChangedEvent> changesDuringReload;
+
+    public CityCatalog(CityRepository cityRepository, MeterRegistry meterRegistry) {
+        this.cityRepository = cityRepository;
+        Gauge.builder("cities.catalog.size", this, CityCatalog::size)
+                .register(meterRegistry);
+        Gauge.builder("cities.catalog.memory", this, CityCatalog::estimatedBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public boolean isLoaded() {
+        return index != null;
+    }
+
+    public Optional<City> findById(Long id) {
+        return Optional.ofNullable(index.byId.get(id)).map(CityCatalog::copy);
+    }
+
+    public Optional<City> findByName(String name) {
+        return Optional.ofNullable(index.byName.get(normalize(name))).map(CityCatalog::copy);
+    }
+
+    public List<City> findByNameIn(Collection<String> names) {
+        List<City> cities = new ArrayList<>(names.size());
+        for (String name : names) {
+            findByName(name).ifPresent(cities::add);
+        }
+        return cities;
+    }
+
+    public List<CitySummary> findAfter(Long afterId, int size) {
+        List<CitySummary> cities = new ArrayList<>(size);
+        for (City city : index.byId.tailMap(afterId, false).values()) {
+            if (cities.size() == size) {
+                break;
+            }
+            cities.add(CitySummary.from(city));
+        }
+        return cities;
+    }
+
+    // Bumped after every change is applied, so a tag read before serving never describes newer data
+    public String versionTag() {
+        return instanceTag + "-" + version.get();
+    }
+
+    public int size() {
+        Index current = index;
+        return current == null ? 0 : current.byId.size();
+    }
+
+    public long estimatedBytes() {
+        Index current = index;
+        if (current == null) {
+            return 0;
+        }
+        long bytes = 0;
+        for (City city : current.byId.values()) {
+            bytes += CITY_OVERHEAD_BYTES + 2L * (length(city.getName()) + length(city.getCountry())
+                    + length(city.getStateRegion()));
+        }
+        return bytes;
+    }
+
+    // Read-write, so the reload reads the primary. A replica may not have the imported rows yet.
+    @EventListener({ApplicationReadyEvent.class, CitiesImportedEvent.class})
+    @Transactional
+    public synchronized void reload() {
+        long start = System.nanoTime();
+        synchronized (changeLock) {
+            changesDuringReload = new ArrayList<>();
+        }
+        Index fresh = new Index();
+        try {
+            cityRepository.findAll().forEach(fresh::put);
+            synchronized (changeLock) {
+                // Events arrive after commit and in order, replaying one the snapshot already has is harmless
+                changesDuringReload.forEach(fresh::apply);
+                index = fresh;
+                version.incrementAndGet();
+            }
+        } finally {
+            synchronized (changeLock) {
+                changesDuringReload = null;
+            }
+        }
+        log.info("Loaded {} cities into the catalog in {} ms, about {} KB",
+                fresh.byId.size(), (System.nanoTime() - start) / 1_000_000, estimatedBytes() / 1024);
+    }
+
+    // Applied after commit, a rolled back write never reaches the catalog
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCityChanged(CityChangedEvent event) {
+        apply(List.of(event));
+    }
+
+    // A batch chunk is applied under one lock and bumps the version once
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCitiesChanged(CitiesChangedEvent event) {
+        apply(event.toCityEvents());
+    }
+
+    private void apply(List<CityChangedEvent> events) {
+        synchronized (changeLock) {
+            if (changesDuringReload != null) {
+                changesDuringReload.addAll(events);
+            }
+            Index current = index;
+            if (current != null) {
+                events.forEach(current::apply);
+                version.incrementAndGet();
+            }
+        }
+    }
+
+    public static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Callers set the temperature on the returned city, so the cached instance is never handed out
+    private static City copy(City city) {
+        return new City(city.getId(), city.getName(), city.getCountry(), city.getStateRegion(),
+                city.getPopulation(), 0, false);
+    }
+
+    private static int length(String value) {
+        return value == null ? 0 : value.length();
+    }
+
+    private static final class Index {
+
+        private final ConcurrentSkipListMap<Long, City> byId = new ConcurrentSkipListMap<>();
+        private final Map<String, City> byName = new ConcurrentHashMap<>();
+
+        private void put(City city) {
+            City stored = copy(city);
+            remove(stored.getId());
+            byId.put(stored.getId(), stored);
+            if (stored.getName() != null) {
+                byName.put(normalize(stored.getName()), stored);
+            }
+        }
+
+        private void apply(CityChangedEvent event) {
+            if (event.getType() == CityChangedEvent.Type.DELETED) {
+                remove(event.getCity().getId());
+            } else {
+                put(event.getCity());
+            }
+        }
+
+        private void remove(Long id) {
+            City previous = byId.remove(id);
+            if (previous != null && previous.getName() != null) {
+                byName.remove(normalize(previous.getName()), previous);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,237 @@
+package rs.challenge.basf.service;
+
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import rs.challenge.basf.event.CitiesChangedEvent;
+import rs.challenge.basf.event.CitiesImportedEvent;
+import rs.challenge.basf.event.CityChangedEvent;
+import rs.challenge.basf.model.City;
+import rs.challenge.basf.repository.CityRepository;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+@ConditionalOnProperty(name = "cities.notifications.enabled", havingValue = "true", matchIfMissing = true)
+public class CityChangeNotifier {
+
+    private static final Logger log = LoggerFactory.getLogger(CityChangeNotifier.class);
+
+    public static final String CHANNEL = "city_changes";
+    private static final String IMPORTED = "IMPORTED";
+    // NOTIFY payloads are limited to 8000 bytes, this many ids always fit
+    private static final int IDS_PER_NOTIFICATION = 300;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+    private final CityRepository cityRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate notifyTemplate;
+
+    @Value("${cities.notifications.poll-timeout:1s}")
+    private Duration pollTimeout;
+    @Value("${cities.notifications.retry-delay:5s}")
+    private Duration retryDelay;
+
+    private volatile boolean running;
+    private Thread listener;
+
+    public CityChangeNotifier(JdbcTemplate jdbcTemplate, DataSource dataSource, CityRepository cityRepository,
+                              ApplicationEventPublisher eventPublisher, TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+        this.cityRepository = cityRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.notifyTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.notifyTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    // After commit, a rolled back write is never broadcast
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCityChanged(CityChangedEvent event) {
+        if (!event.isRemote()) {
+            notify(event.getType().name(), String.valueOf(event.getCity().getId()));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCitiesChanged(CitiesChangedEvent event) {
+        if (event.isRemote()) {
+            return;
+        }
+        List<City> cities = event.getCities();
+        for (int from = 0; from < cities.size(); from += IDS_PER_NOTIFICATION) {
+            notify(event.getType().name(), cities.subList(from, Math.min(from + IDS_PER_NOTIFICATION, cities.size()))
+                    .stream()
+                    .map(city -> String.valueOf(city.getId()))
+                    .collect(Collectors.joining(",")));
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCitiesImported(CitiesImportedEvent event) {
+        if (!event.isRemote()) {
+            notify(IMPORTED, String.valueOf(event.getRowsInserted()));
+        }
+    }
+
+    // Payload is "<instance>:<type>:<value>", the value being the row count of an import or comma separated city
+    // ids. Other instances reload the cities by id instead of trusting the payload.
+    // Sent in a transaction of its own: a failed NOTIFY inside the write transaction would abort the write.
+    private void notify(String type, String value) {
+        try {
+            notifyTemplate.executeWithoutResult(status -> jdbcTemplate.queryForList("SELECT pg_notify(?, ?)",
+                    CHANNEL, instanceId + ":" + type + ":" + value));
+        } catch (DataAccessException | TransactionException e) {
+            log.warn("Could not notify other instances about {} {}: {}", type, value, e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        running = true;
+        listener = new Thread(this::listen, "city-change-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    private void listen() {
+        boolean reconnecting = false;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                if (reconnecting) {
+                    // Notifications sent while the connection was down are lost, so rebuild everything
+                    transactionTemplate.executeWithoutResult(
+                            status -> eventPublisher.publishEvent(new CitiesImportedEvent(0, true)));
+                }
+                reconnecting = true;
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications((int) pollTimeout.toMillis());
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            handle(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Listening for city changes failed, retrying in {}: {}", retryDelay, e.getMessage());
+                try {
+                    Thread.sleep(retryDelay.toMillis());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public void handle(String payload) {
+        String[] parts = payload.split(":", 3);
+        if (parts.length != 3 || parts[0].equals(instanceId)) {
+            return;
+        }
+        String type = parts[1];
+        String value = parts[2];
+
+        // A read-write transaction keeps the reload, and the listeners it triggers, on the primary. A replica
+        // may not have the change yet.
+        transactionTemplate.executeWithoutResult(status -> apply(type, value));
+    }
+
+    private void apply(String type, String value) {
+        if (IMPORTED.equals(type)) {
+            eventPublisher.publishEvent(new CitiesImportedEvent(Long.parseLong(value), true));
+            return;
+        }
+
+        CityChangedEvent.Type changeType = CityChangedEvent.Type.valueOf(type);
+        List<Long> ids = Arrays.stream(value.split(",")).map(Long::valueOf).toList();
+        if (ids.size() > 1) {
+            applyChunk(changeType, ids);
+            return;
+        }
+        long id = ids.get(0);
+        if (changeType == CityChangedEvent.Type.DELETED) {
+            publishDeleted(id);
+            return;
+        }
+        // The row may already be gone again by the time this instance reads it
+        cityRepository.findById(id).ifPresentOrElse(
+                city -> eventPublisher.publishEvent(new CityChangedEvent(changeType, city, true)),
+                () -> publishDeleted(id));
+    }
+
+    // A batch chunk is reloaded with one query and handed on as one event
+    private void applyChunk(CityChangedEvent.Type type, List<Long> ids) {
+        Map<Long, City> found = type == CityChangedEvent.Type.DELETED ? Map.of()
+                : cityRepository.findAllById(ids).stream().collect(Collectors.toMap(City::getId, Function.identity()));
+        List<City> gone = new ArrayList<>();
+        for (Long id : ids) {
+            if (!found.containsKey(id)) {
+                gone.add(deleted(id));
+            }
+        }
+        if (!found.isEmpty()) {
+            eventPublisher.publishEvent(new CitiesChangedEvent(type, List.copyOf(found.values()), true));
+        }
+        if (!gone.isEmpty()) {
+            eventPublisher.publishEvent(new CitiesChangedEvent(CityChangedEvent.Type.DELETED, gone, true));
+        }
+    }
+
+    private void publishDeleted(long id) {
+        eventPublisher.publishEvent(new CityChangedEvent(CityChangedEvent.Type.DELETED, deleted(id), true));
+    }
+
+    private static City deleted(long id) {
+        City city = new City();
+        city.setId(id);
+        return city;
+    }
+
+}
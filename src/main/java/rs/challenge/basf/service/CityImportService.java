@@ -0,0 +1,156 @@
+package rs.challenge.basf.service;
+
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVRecord;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import rs.challenge.basf.event.CitiesImportedEvent;
+import rs.challenge.basf.repository.CityIdGenerator;
+import rs.challenge.basf.response.ImportResponse;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+@Service
+public class CityImportService {
+
+    private static final String[] HEADERS = {"id", "country", "name", "population", "region"};
+
+    public static final CSVFormat CSV_FORMAT = CSVFormat.DEFAULT.builder()
+            .setHeader(HEADERS)
+            .setSkipHeaderRecord(true)
+            .build();
+
+    // One statement per chunk, its row count leaves out the rows ON CONFLICT skipped. Both unique name indexes are
+    // arbiters, the exact one and the case-insensitive one. Batched inserts are rewritten by the driver and report
+    // no row counts.
+    private static final String INSERT_CITIES = "INSERT INTO cities (id, name, country, \"state/region\", population) " +
+            "SELECT * FROM unnest(?::bigint[], ?::varchar[], ?::varchar[], ?::varchar[], ?::bigint[]) " +
+            "ON CONFLICT DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CityIdGenerator cityIdGenerator;
+    private final ResourceLoader resourceLoader;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${import.cities.location:classpath:cities.csv}")
+    private String location;
+    @Value("${import.cities.chunk-size:1000}")
+    private int chunkSize;
+    @Value("${import.cities.writers:4}")
+    private int writers;
+
+    public CityImportService(JdbcTemplate jdbcTemplate, CityIdGenerator cityIdGenerator,
+                             ResourceLoader resourceLoader, ApplicationEventPublisher eventPublisher,
+                             TransactionTemplate transactionTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cityIdGenerator = cityIdGenerator;
+        this.resourceLoader = resourceLoader;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public ImportResponse importCities() throws IOException {
+        return importCities(resourceLoader.getResource(location));
+    }
+
+    public ImportResponse importCities(Resource resource) throws IOException {
+
+        long start = System.nanoTime();
+        long rowsRead = 0;
+        long rowsInserted = 0;
+
+        // Parsing runs on the calling thread, chunks are written by a fixed set of writers.
+        // When all writers are busy and the queue is full the parser writes the chunk itself.
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(writers, writers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(writers), new CustomizableThreadFactory("city-import-"),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        List<Future<Integer>> writes = new ArrayList<>();
+
+        try (Reader reader = new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8)) {
+            List<Object[]> chunk = new ArrayList<>(chunkSize);
+            for (CSVRecord record : CSV_FORMAT.parse(reader)) {
+                chunk.add(parseRow(record));
+                rowsRead++;
+                if (chunk.size() == chunkSize) {
+                    writes.add(submit(executor, chunk));
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writes.add(submit(executor, chunk));
+            }
+            for (Future<Integer> write : writes) {
+                rowsInserted += write.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("City import interrupted.");
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error while importing cities: " + e.getCause().getMessage());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (rowsInserted > 0) {
+            eventPublisher.publishEvent(new CitiesImportedEvent(rowsInserted));
+        }
+        long rowsPerSecond = rowsRead * 1000 / Math.max(elapsedMillis, 1);
+
+        return new ImportResponse(rowsRead, rowsInserted, elapsedMillis, rowsPerSecond);
+    }
+
+    // Ids of rows skipped by ON CONFLICT are simply left unused. Each chunk commits on its own and returns the
+    // number of rows it inserted, which concurrent writes to the table do not skew.
+    private Future<Integer> submit(ThreadPoolExecutor executor, List<Object[]> chunk) {
+        return executor.submit(() -> transactionTemplate.execute(status -> {
+            long[] ids = cityIdGenerator.allocate(chunk.size());
+            Long[] idColumn = new Long[chunk.size()];
+            String[] names = new String[chunk.size()];
+            String[] countries = new String[chunk.size()];
+            String[] regions = new String[chunk.size()];
+            Long[] populations = new Long[chunk.size()];
+            for (int i = 0; i < chunk.size(); i++) {
+                Object[] row = chunk.get(i);
+                idColumn[i] = ids[i];
+                names[i] = (String) row[0];
+                countries[i] = (String) row[1];
+                regions[i] = (String) row[2];
+                populations[i] = (Long) row[3];
+            }
+            return jdbcTemplate.update(INSERT_CITIES, idColumn, names, countries, regions, populations);
+        }));
+    }
+
+    public static Object[] parseRow(CSVRecord record) {
+        String population = record.get("population");
+
+        Long parsedPopulation = null;
+        if (StringUtils.isNotEmpty(population) && !population.equals("null")) {
+            // The source file writes populations as decimals, parse the integer part in place
+            int end = population.indexOf('.');
+            parsedPopulation = Long.parseLong(population, 0, end < 0 ? population.length() : end, 10);
+        }
+
+        return new Object[]{record.get("name"), record.get("country"), record.get("region"), parsedPopulation};
+    }
+
+}
@@ -0,0 +1,90 @@
+package rs.challenge.basf.service;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import rs.challenge.basf.event.CitiesChangedEvent;
+import rs.challenge.basf.event.CitiesImportedEvent;
+import rs.challenge.basf.event.CityChangedEvent;
+import rs.challenge.basf.model.CitySummary;
+import rs.challenge.basf.repository.CityRepository;
+import rs.challenge.basf.util.CitySearchIndex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+public class CitySearchService {
+
+    public static final int MAX_LIMIT = 50;
+
+    private final CityRepository cityRepository;
+
+    private volatile CitySearchIndex index = new CitySearchIndex();
+    private final Object changeLock = new Object();
+    // Changes applied while a reload reads the table, replayed onto the new index before it is swapped in
+    private List<CityChangedEvent> changesDuringReload;
+
+    public CitySearchService(CityRepository cityRepository) {
+        this.cityRepository = cityRepository;
+    }
+
+    public List<CitySummary> search(String query, int limit) {
+        return index.search(query, Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
+    // Read-write, so the reload reads the primary. A replica may not have the imported rows yet.
+    @EventListener({ApplicationReadyEvent.class, CitiesImportedEvent.class})
+    @Transactional
+    public synchronized void reload() {
+        synchronized (changeLock) {
+            changesDuringReload = new ArrayList<>();
+        }
+        // Built aside and swapped in, searches keep using the old index until the new one is complete
+        CitySearchIndex fresh = new CitySearchIndex();
+        try {
+            try (Stream<CitySummary> cities = cityRepository.streamSummariesOrderById()) {
+                cities.forEach(fresh::put);
+            }
+            synchronized (changeLock) {
+                changesDuringReload.forEach(event -> apply(fresh, event));
+                index = fresh;
+            }
+        } finally {
+            synchronized (changeLock) {
+                changesDuringReload = null;
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCityChanged(CityChangedEvent event) {
+        apply(List.of(event));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCitiesChanged(CitiesChangedEvent event) {
+        apply(event.toCityEvents());
+    }
+
+    private void apply(List<CityChangedEvent> events) {
+        synchronized (changeLock) {
+            if (changesDuringReload != null) {
+                changesDuringReload.addAll(events);
+            }
+            events.forEach(event -> apply(index, event));
+        }
+    }
+
+    private static void apply(CitySearchIndex target, CityChangedEvent event) {
+        if (event.getType() == CityChangedEvent.Type.DELETED) {
+            target.remove(event.getCity().getId());
+        } else {
+            target.put(CitySummary.from(event.getCity()));
+        }
+    }
+
+}
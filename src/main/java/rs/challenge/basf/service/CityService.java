@@ -1,71 +1,248 @@
 package rs.challenge.basf.service;
 
 import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import rs.challenge.basf.event.CityChangedEvent;
 import rs.challenge.basf.model.City;
+import rs.challenge.basf.model.CitySummary;
+import rs.challenge.basf.model.TemperatureReading;
 import rs.challenge.basf.repository.CityRepository;
 import rs.challenge.basf.request.CreateCityRequest;
 import rs.challenge.basf.request.UpdateCityRequest;
+import rs.challenge.basf.response.CityTemperatureResponse;
 
-import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class CityService {
 
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final String WEATHER_UNAVAILABLE = "Weather service is temporarily unavailable.";
+
     private final CityRepository cityRepository;
+    private final CityCatalog cityCatalog;
     private final WeatherService weatherService;
+    private final WeatherPrefetchService weatherPrefetchService;
+    private final Executor lookupExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${api.weather.bulk.parallelism:16}")
+    private int bulkParallelism;
+    @Value("${api.weather.bulk.max-names:500}")
+    private int bulkMaxNames;
+    @Value("${api.weather.cache.refresh-after:5m}")
+    private Duration temperatureMaxAge;
 
-    public CityService(CityRepository cityRepository, WeatherService weatherService) {
+    public CityService(CityRepository cityRepository, CityCatalog cityCatalog, WeatherService weatherService,
+                       WeatherPrefetchService weatherPrefetchService,
+                       @Qualifier("applicationTaskExecutor") Executor lookupExecutor,
+                       ApplicationEventPublisher eventPublisher) {
         this.cityRepository = cityRepository;
+        this.cityCatalog = cityCatalog;
         this.weatherService = weatherService;
+        this.weatherPrefetchService = weatherPrefetchService;
+        this.lookupExecutor = lookupExecutor;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public List<CitySummary> findAfter(Long afterId, int size) {
+        if (cityCatalog.isLoaded()) {
+            return cityCatalog.findAfter(afterId, pageSize(size));
+        }
+        return cityRepository.findSummariesAfter(afterId, PageRequest.of(0, pageSize(size)));
+    }
+
+    public static int pageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    // Tags are only handed out once reads come from the catalog, whose version tracks every applied change.
+    // They are weak because Tomcat does not compress responses that carry a strong tag.
+    public String listETag(String representation) {
+        return cityCatalog.isLoaded() ? "W/\"" + cityCatalog.versionTag() + "-" + representation + "\"" : null;
+    }
+
+    // The window number changes whenever the cached temperature may have been refreshed
+    public String cityETag() {
+        if (!cityCatalog.isLoaded()) {
+            return null;
+        }
+        long window = System.currentTimeMillis() / temperatureMaxAge.toMillis();
+        return "W/\"" + cityCatalog.versionTag() + "-" + window + "\"";
     }
 
-    public List<City> findAll() {
-        return cityRepository.findAll();
+    public Duration getTemperatureMaxAge() {
+        return temperatureMaxAge;
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<CitySummary> consumer) {
+        try (Stream<CitySummary> cities = cityRepository.streamSummariesOrderById()) {
+            cities.forEach(consumer);
+        }
     }
 
     public City findById(Long id) {
-        return cityRepository.findById(id)
-                .orElseThrow(NoSuchElementException::new);
+        Optional<City> city = cityCatalog.isLoaded() ? cityCatalog.findById(id) : cityRepository.findById(id);
+        return city.orElseThrow(NoSuchElementException::new);
+    }
+
+    // Served from the catalog once it is loaded, the repository only covers the startup window. Both match
+    // normalized names, so a name is found, or a duplicate, the same way before and after the catalog loads.
+    private Optional<City> lookupByName(String name) {
+        return cityCatalog.isLoaded() ? cityCatalog.findByName(name)
+                : cityRepository.findByNormalizedName(CityCatalog.normalize(name));
+    }
+
+    private List<City> lookupByNames(Collection<String> names) {
+        return cityCatalog.isLoaded() ? cityCatalog.findByNameIn(names)
+                : cityRepository.findByNormalizedNameIn(names.stream().map(CityCatalog::normalize).toList());
+    }
+
+    public boolean exists(String name) {
+        return lookupByName(name).isPresent();
     }
 
-    public City findByName(String name) {
+    public CompletableFuture<City> findByNameAsync(String name) {
 
-        City city = cityRepository.findByName(name)
-                .orElseThrow(NoSuchElementException::new);
+        // The weather call only starts once the city is known to exist, unknown names never reach the upstream.
+        // A cached temperature completes on the calling thread, only upstream calls take a lookup thread.
+        if (cityCatalog.isLoaded()) {
+            Optional<City> city = cityCatalog.findByName(name);
+            if (city.isEmpty()) {
+                return CompletableFuture.failedFuture(new NoSuchElementException());
+            }
+            Optional<TemperatureReading> cached = weatherService.getCachedTemperature(name);
+            if (cached.isPresent()) {
+                return CompletableFuture.completedFuture(withTemperature(city.get(), name, cached.get()));
+            }
+            return CompletableFuture.supplyAsync(() -> withTemperature(city.get(), name), lookupExecutor);
+        }
+        return CompletableFuture.supplyAsync(() -> lookupByName(name)
+                        .orElseThrow(NoSuchElementException::new), lookupExecutor)
+                .thenApplyAsync(city -> withTemperature(city, name), lookupExecutor);
+    }
 
-        int temp = (int) Math.round(weatherService.getTemperature(name));
-        city.setTemperature(temp);
+    private City withTemperature(City city, String name) {
+        return withTemperature(city, name, weatherService.getTemperature(name));
+    }
 
+    private City withTemperature(City city, String name, TemperatureReading reading) {
+        weatherPrefetchService.recordRequest(name);
+        setTemperature(city, reading);
         return city;
     }
 
+    private void setTemperature(City city, TemperatureReading reading) {
+        city.setTemperature((int) Math.round(reading.getValue()));
+        city.setTemperatureStale(reading.isStale());
+    }
+
+    public CompletableFuture<List<CityTemperatureResponse>> findTemperatures(List<String> names) {
+
+        Set<String> uniqueNames = new LinkedHashSet<>(names);
+        if (uniqueNames.stream().anyMatch(StringUtils::isBlank)) {
+            throw new IllegalArgumentException("Names must not be blank.");
+        }
+        if (uniqueNames.size() > bulkMaxNames) {
+            throw new IllegalArgumentException("At most " + bulkMaxNames + " cities can be requested at once.");
+        }
+
+        return CompletableFuture.supplyAsync(() -> lookupByNames(uniqueNames), lookupExecutor)
+                .thenCompose(cities -> {
+                    Map<String, City> citiesByName = cities.stream()
+                            .collect(Collectors.toMap(c -> CityCatalog.normalize(c.getName()),
+                                    Function.identity(), (first, second) -> first));
+                    Map<String, CityTemperatureResponse> results = new ConcurrentHashMap<>();
+                    Queue<String> pending = new ConcurrentLinkedQueue<>();
+
+                    for (String name : uniqueNames) {
+                        if (citiesByName.containsKey(CityCatalog.normalize(name))) {
+                            pending.add(name);
+                        } else {
+                            results.put(name, new CityTemperatureResponse(name, null, false, "No data for given city."));
+                        }
+                    }
+
+                    // A fixed number of workers drain the queue, bounding upstream calls per request
+                    int workers = Math.min(bulkParallelism, pending.size());
+                    List<CompletableFuture<Void>> fetches = new ArrayList<>(workers);
+                    for (int i = 0; i < workers; i++) {
+                        fetches.add(CompletableFuture.runAsync(() -> {
+                            String name;
+                            while ((name = pending.poll()) != null) {
+                                results.put(name, fetchTemperature(name));
+                            }
+                        }, lookupExecutor));
+                    }
+
+                    return CompletableFuture.allOf(fetches.toArray(new CompletableFuture[0]))
+                            .thenApply(ignored -> uniqueNames.stream().map(results::get).toList());
+                });
+    }
+
+    private CityTemperatureResponse fetchTemperature(String name) {
+        try {
+            TemperatureReading reading = weatherService.getTemperature(name);
+            return new CityTemperatureResponse(name, (int) Math.round(reading.getValue()), reading.isStale(), null);
+        } catch (Exception e) {
+            String error = WeatherService.isUnavailable(e) ? WEATHER_UNAVAILABLE : e.getMessage();
+            return new CityTemperatureResponse(name, null, false, error);
+        }
+    }
+
+    // Writes run in one transaction on one connection. Listeners that update in-memory state and the
+    // cross-instance NOTIFY only see the event after commit.
+    @Transactional
     public City create(CreateCityRequest request) {
 
-        if (cityRepository.findByName(request.getName()).isPresent()) {
+        if (lookupByName(request.getName()).isPresent()) {
             throw new DuplicateKeyException("City already exists.");
         }
         City city = new City();
         city.setName(request.getName());
         city.setCountry(request.getCountry());
         city.setStateRegion(request.getStateRegion());
-        city.setPopulation(new BigInteger(request.getPopulation()));
+        city.setPopulation(Long.valueOf(request.getPopulation()));
 
         try {
-            city = cityRepository.save(city);
+            city = cityRepository.saveAndFlush(city);
         } catch (Exception e) {
             throw new RuntimeException("Error while trying to persist city.");
         }
+        eventPublisher.publishEvent(new CityChangedEvent(CityChangedEvent.Type.CREATED, city));
 
         return city;
     }
 
+    @Transactional
     public City update(UpdateCityRequest request) {
 
-        City city = findById(request.getId());
+        // Loaded as a managed entity so the flush writes the changes directly, without a merge
+        City city = cityRepository.findById(request.getId()).orElseThrow(NoSuchElementException::new);
 
         if (StringUtils.isNotEmpty(request.getName())) {
             city.setName(request.getName());
@@ -74,38 +251,48 @@ public class CityService {
             city.setCountry(request.getCountry());
         }
         if (StringUtils.isNotEmpty(request.getPopulation())) {
-            city.setPopulation(new BigInteger(request.getPopulation()));
+            city.setPopulation(Long.valueOf(request.getPopulation()));
         }
 
         try {
-            city = cityRepository.save(city);
+            city = cityRepository.saveAndFlush(city);
         } catch (Exception e) {
             throw new RuntimeException("Error while trying to update city.");
         }
+        eventPublisher.publishEvent(new CityChangedEvent(CityChangedEvent.Type.UPDATED, city));
 
         return city;
     }
 
+    @Transactional
     public void deleteById(Long id) {
 
-        City city = cityRepository.findById(id)
-                .orElseThrow(NoSuchElementException::new);
+        // Deleted as a managed entity, like update, instead of merging a catalog copy first
+        City city = cityRepository.findById(id).orElseThrow(NoSuchElementException::new);
         try {
             cityRepository.delete(city);
+            cityRepository.flush();
         } catch (Exception e) {
             throw new RuntimeException("Error while trying to delete city.");
         }
+        eventPublisher.publishEvent(new CityChangedEvent(CityChangedEvent.Type.DELETED, city));
     }
 
+    @Transactional
     public void deleteByName(String name) {
 
-        City city = cityRepository.findByName(name)
-                .orElseThrow(NoSuchElementException::new);
+        // The catalog resolves the name case-insensitively, the entity itself is loaded managed
+        Long id = lookupByName(name)
+                .orElseThrow(NoSuchElementException::new)
+                .getId();
+        City city = cityRepository.findById(id).orElseThrow(NoSuchElementException::new);
         try {
             cityRepository.delete(city);
+            cityRepository.flush();
         } catch (Exception e) {
             throw new RuntimeException("Error while trying to delete city.");
         }
+        eventPublisher.publishEvent(new CityChangedEvent(CityChangedEvent.Type.DELETED, city));
     }
 
 
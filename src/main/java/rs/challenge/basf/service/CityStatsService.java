@@ -0,0 +1,77 @@
+package rs.challenge.basf.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import rs.challenge.basf.event.CitiesChangedEvent;
+import rs.challenge.basf.event.CitiesImportedEvent;
+import rs.challenge.basf.event.CityChangedEvent;
+import rs.challenge.basf.model.CitySummary;
+import rs.challenge.basf.repository.CityRepository;
+import rs.challenge.basf.response.PopulationRollupResponse;
+import rs.challenge.basf.response.PopulationTotalsResponse;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+@Service
+public class CityStatsService {
+
+    public static final int MAX_TOP = 100;
+
+    private final CityRepository cityRepository;
+    private final Cache<String, Object> results;
+
+    public CityStatsService(CityRepository cityRepository, MeterRegistry meterRegistry,
+                            @Value("${api.stats.cache.ttl:1h}") Duration cacheTtl,
+                            @Value("${api.stats.cache.max-size:1000}") long cacheMaxSize) {
+        this.cityRepository = cityRepository;
+        // Writes clear the cache, the ttl only bounds staleness from changes made outside the application
+        this.results = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, results, "city.stats");
+    }
+
+    public PopulationTotalsResponse totals() {
+        return cached("totals", cityRepository::findPopulationTotals);
+    }
+
+    public List<PopulationRollupResponse> byCountry() {
+        return cached("countries", cityRepository::findPopulationByCountry);
+    }
+
+    public List<PopulationRollupResponse> byRegion(String country) {
+        return cached("regions:" + country, () -> cityRepository.findPopulationByRegion(country));
+    }
+
+    public List<CitySummary> mostPopulated(String country, int limit) {
+        PageRequest page = PageRequest.of(0, Math.max(1, Math.min(limit, MAX_TOP)));
+        if (country == null) {
+            return cached("top:" + page.getPageSize(), () -> cityRepository.findMostPopulated(page));
+        }
+        return cached("top:" + page.getPageSize() + ":" + country,
+                () -> cityRepository.findMostPopulatedIn(country, page));
+    }
+
+    // After commit, otherwise a concurrent query could cache the old totals again right after the invalidation
+    @TransactionalEventListener(classes = {CityChangedEvent.class, CitiesChangedEvent.class,
+            CitiesImportedEvent.class}, fallbackExecution = true)
+    public void invalidate() {
+        results.invalidateAll();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cached(String key, Supplier<T> query) {
+        return (T) results.get(key, k -> query.get());
+    }
+
+}
@@ -1,12 +1,19 @@
 package rs.challenge.basf.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import rs.challenge.basf.model.User;
 import rs.challenge.basf.repository.UserRepository;
 
+import java.time.Duration;
 import java.util.Collections;
 
 @Service
@@ -14,20 +21,46 @@ public class UserService implements UserDetailsService {
 
     private final UserRepository userRepository;
 
-    public UserService(UserRepository userRepository) {
+    private final Cache<String, UserDetails> users;
+
+    public UserService(UserRepository userRepository,
+                       @Value("${security.user-cache.ttl:5m}") Duration cacheTtl,
+                       @Value("${security.user-cache.max-size:10000}") long cacheMaxSize,
+                       MeterRegistry meterRegistry) {
         this.userRepository = userRepository;
+        this.users = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, users, "users");
     }
 
     @Override
+    @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        UserDetails user = users.get(username, this::findUser);
+
+        // Callers get a copy, authentication erases credentials on the instance it returns
+        return org.springframework.security.core.userdetails.User.withUserDetails(user).build();
+    }
+
+    public User save(User user) {
+        User saved = userRepository.save(user);
+        evict(saved.getEmail());
+        return saved;
+    }
+
+    public void evict(String email) {
+        users.invalidate(email);
+    }
+
+    private UserDetails findUser(String username) {
         User user = userRepository.findByEmail(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User " + username + " not found."));
 
         return new org.springframework.security.core.userdetails.User(user.getEmail(),
                 user.getPassword(), Collections.emptyList());
-
     }
 
-
-
 }
@@ -0,0 +1,72 @@
+package rs.challenge.basf.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+@Service
+public class WeatherPrefetchService {
+
+    private final WeatherService weatherService;
+    private final TaskScheduler taskScheduler;
+
+    private final Map<String, LongAdder> requestCounts = new ConcurrentHashMap<>();
+
+    @Value("${api.weather.prefetch.top-k:100}")
+    private int topK;
+    @Value("${api.weather.prefetch.max-requests-per-second:5}")
+    private double maxRequestsPerSecond;
+
+    public WeatherPrefetchService(WeatherService weatherService, TaskScheduler taskScheduler) {
+        this.weatherService = weatherService;
+        this.taskScheduler = taskScheduler;
+    }
+
+    public void recordRequest(String city) {
+        requestCounts.computeIfAbsent(WeatherService.normalize(city), key -> new LongAdder()).increment();
+    }
+
+    public List<String> hotCities() {
+        return requestCounts.entrySet().stream()
+                .filter(entry -> entry.getValue().sum() > 0)
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .limit(topK)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    @Scheduled(fixedRateString = "${api.weather.prefetch.interval:PT4M}",
+            initialDelayString = "${api.weather.prefetch.interval:PT4M}")
+    public void prefetchHotCities() {
+
+        List<String> hotCities = hotCities();
+        decayRequestCounts();
+
+        // Refreshes are spread over time so the upstream rate limit is never exceeded
+        long spacingMillis = (long) (1000 / maxRequestsPerSecond);
+        Instant start = Instant.now();
+        for (int i = 0; i < hotCities.size(); i++) {
+            String city = hotCities.get(i);
+            taskScheduler.schedule(() -> weatherService.refresh(city), start.plusMillis(i * spacingMillis));
+        }
+    }
+
+    private void decayRequestCounts() {
+        requestCounts.forEach((city, count) -> {
+            long halved = count.sumThenReset() / 2;
+            if (halved == 0) {
+                requestCounts.remove(city);
+            } else {
+                count.add(halved);
+            }
+        });
+    }
+
+}
@@ -1,46 +1,344 @@
 package rs.challenge.basf.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
-import rs.challenge.basf.model.WeatherInfo;
+import rs.challenge.basf.model.TemperatureReading;
+import rs.challenge.basf.provider.WeatherProvider;
+import rs.challenge.basf.util.LatencyWindow;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class WeatherService {
 
-    @Value("${api.weather.key}")
-    private String WEATHER_API_KEY;
-    @Value("${api.weather.uri}")
-    private String WEATHER_API_URI;
+    @Value("${api.weather.provider.primary:weatherapi}")
+    private String primaryProviderName;
+    @Value("${api.weather.hedge.provider:}")
+    private String hedgeProviderName;
+    @Value("${api.weather.hedge.percentile:95}")
+    private double hedgePercentile;
+    @Value("${api.weather.hedge.min-delay:50ms}")
+    private Duration hedgeMinDelay;
+    @Value("${api.weather.hedge.initial-delay:1s}")
+    private Duration hedgeInitialDelay;
+    @Value("${api.weather.hedge.min-samples:20}")
+    private int hedgeMinSamples;
 
-    public double getTemperature(String city) {
+    @Value("${api.weather.cache.ttl:10m}")
+    private Duration cacheTtl;
+    @Value("${api.weather.cache.refresh-after:5m}")
+    private Duration cacheRefreshAfter;
+    @Value("${api.weather.cache.max-size:10000}")
+    private long cacheMaxSize;
 
-        RestTemplate restTemplate = new RestTemplate();
+    @Value("${api.weather.fallback.enabled:true}")
+    private boolean fallbackEnabled;
+    @Value("${api.weather.fallback.ttl:24h}")
+    private Duration fallbackTtl;
 
-        HttpHeaders headers = new HttpHeaders();
-        HttpEntity<Object> requestEntity = new HttpEntity<>(headers);
+    @Value("${api.weather.circuit-breaker.failure-rate-threshold:50}")
+    private float failureRateThreshold;
+    @Value("${api.weather.circuit-breaker.slow-call-duration:2s}")
+    private Duration slowCallDuration;
+    @Value("${api.weather.circuit-breaker.sliding-window-size:50}")
+    private int slidingWindowSize;
+    @Value("${api.weather.circuit-breaker.minimum-calls:20}")
+    private int minimumCalls;
+    @Value("${api.weather.circuit-breaker.open-duration:30s}")
+    private Duration openDuration;
 
-        String uriWithParams = WEATHER_API_URI + "?q={city}&key={key}";
+    @Value("${api.weather.bulkhead.max-concurrent-calls:50}")
+    private int maxConcurrentCalls;
+    @Value("${api.weather.bulkhead.max-wait:0ms}")
+    private Duration maxWait;
 
-        Map<String, String> queryParams = new HashMap<>();
-        queryParams.put("city", city);
-        queryParams.put("key", WEATHER_API_KEY);
+    private final List<WeatherProvider> providers;
+    private final MeterRegistry meterRegistry;
+    private final LatencyWindow primaryLatencies = new LatencyWindow(256);
 
+    private LoadingCache<String, Double> temperatures;
+    private Cache<String, Double> lastKnownTemperatures;
+    private CircuitBreaker circuitBreaker;
+    private Bulkhead bulkhead;
+    private WeatherProvider primaryProvider;
+    private WeatherProvider hedgeProvider;
+    private ThreadPoolExecutor hedgeExecutor;
+
+    public WeatherService(List<WeatherProvider> providers, MeterRegistry meterRegistry) {
+        this.providers = providers;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        primaryProvider = provider(primaryProviderName);
+        if (StringUtils.isNotEmpty(hedgeProviderName)) {
+            hedgeProvider = provider(hedgeProviderName);
+            // Every admitted call uses at most two threads, one per provider. A full pool rejects the task instead of
+            // running it on the caller, where it could not be timed out and hedged.
+            hedgeExecutor = new ThreadPoolExecutor(0, 2 * maxConcurrentCalls, 60, TimeUnit.SECONDS,
+                    new SynchronousQueue<>(), new ThreadPoolExecutor.AbortPolicy());
+        }
+
+        // Entries older than refresh-after are still served while a reload runs in the background,
+        // entries older than ttl are dropped and loaded again on the calling thread.
+        temperatures = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(cacheTtl)
+                .refreshAfterWrite(cacheRefreshAfter)
+                .recordStats()
+                .build(this::fetchTemperature);
+        CaffeineCacheMetrics.monitor(meterRegistry, temperatures, "weather.temperatures");
+
+        // Outlives the main cache so a reading can still be served while the upstream is down
+        lastKnownTemperatures = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfterWrite(fallbackTtl)
+                .build();
+
+        CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(slowCallDuration)
+                .slidingWindowSize(slidingWindowSize)
+                .minimumNumberOfCalls(minimumCalls)
+                .waitDurationInOpenState(openDuration)
+                .recordException(WeatherService::isUpstreamFailure)
+                .build());
+        circuitBreaker = circuitBreakerRegistry.circuitBreaker("weather");
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(circuitBreakerRegistry).bindTo(meterRegistry);
+
+        BulkheadRegistry bulkheadRegistry = BulkheadRegistry.of(BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(maxWait)
+                .build());
+        bulkhead = bulkheadRegistry.bulkhead("weather");
+        TaggedBulkheadMetrics.ofBulkheadRegistry(bulkheadRegistry).bindTo(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (hedgeExecutor != null) {
+            hedgeExecutor.shutdownNow();
+        }
+    }
+
+    public TemperatureReading getTemperature(String city) {
+        String key = normalize(city);
+        try {
+            return new TemperatureReading(temperatures.get(key), false);
+        } catch (RuntimeException e) {
+            Double lastKnown = fallbackEnabled ? lastKnownTemperatures.getIfPresent(key) : null;
+            if (lastKnown == null) {
+                throw e;
+            }
+            meterRegistry.counter("weather.fallback").increment();
+            return new TemperatureReading(lastKnown, true);
+        }
+    }
+
+    // Cached readings need no upstream call and no thread of their own. An entry past refresh-after is still
+    // returned and reloaded in the background.
+    public Optional<TemperatureReading> getCachedTemperature(String city) {
+        return Optional.ofNullable(temperatures.getIfPresent(normalize(city)))
+                .map(temperature -> new TemperatureReading(temperature, false));
+    }
+
+    public static boolean isUnavailable(Throwable e) {
+        return e instanceof CallNotPermittedException || e instanceof BulkheadFullException;
+    }
+
+    // Only 5xx responses, timeouts and I/O errors say the upstream is unhealthy. A 4xx for an unknown location
+    // is a normal answer and must not open the breaker for every other city.
+    static boolean isUpstreamFailure(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpServerErrorException || cause instanceof ResourceAccessException
+                    || cause instanceof IOException || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void refresh(String city) {
+        temperatures.refresh(normalize(city));
+    }
+
+    private double fetchTemperature(String city) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
         try {
-            ResponseEntity<WeatherInfo> response = restTemplate
-                    .exchange(uriWithParams, HttpMethod.GET, requestEntity, WeatherInfo.class, queryParams);
+            // The bulkhead sits outside the breaker so calls rejected by an open breaker release their permit at once
+            double temperature = Bulkhead.decorateSupplier(bulkhead,
+                    CircuitBreaker.decorateSupplier(circuitBreaker, () -> requestTemperature(city))).get();
+            lastKnownTemperatures.put(city, temperature);
+            outcome = "success";
+            return temperature;
+        } catch (CallNotPermittedException | BulkheadFullException e) {
+            outcome = "rejected";
+            throw e;
+        } finally {
+            sample.stop(meterRegistry.timer("weather.fetch", "outcome", outcome));
+        }
+    }
 
-            WeatherInfo weatherInfo = response.getBody();
-            return weatherInfo.getCurrent().get("temp_c").asDouble();
-        } catch (Exception e) {
+    private double requestTemperature(String city) {
+
+        if (hedgeProvider == null) {
+            return callProvider(primaryProvider, city);
+        }
+
+        CompletableFuture<Double> primaryCall;
+        try {
+            primaryCall = submit(primaryProvider, city);
+        } catch (RejectedExecutionException e) {
+            // The pool is full, call the primary on this thread and go without a hedge
+            meterRegistry.counter("weather.hedge.rejected").increment();
+            return callProvider(primaryProvider, city);
+        }
+        try {
+            return primaryCall.get(hedgeDelay().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            // The primary is slower than usual, ask the second provider as well and keep whichever answers first
+            CompletableFuture<Double> hedgeCall;
+            try {
+                hedgeCall = submit(hedgeProvider, city);
+                meterRegistry.counter("weather.hedge", "provider", hedgeProvider.getName()).increment();
+            } catch (RejectedExecutionException re) {
+                // No thread for the hedge, keep waiting for the primary alone
+                meterRegistry.counter("weather.hedge.rejected").increment();
+                hedgeCall = CompletableFuture.failedFuture(re);
+            }
+            try {
+                return firstSuccessful(primaryCall, hedgeCall).join();
+            } catch (CompletionException ce) {
+                throw unwrap(ce);
+            } finally {
+                // The loser's answer is not needed, stop it so it does not hold a pool thread
+                primaryCall.cancel(true);
+                hedgeCall.cancel(true);
+            }
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            primaryCall.cancel(true);
+            Thread.currentThread().interrupt();
             throw new RestClientException("Error fetching temperature data for city " + city + ".");
         }
+    }
+
+    Duration hedgeDelay() {
+        if (primaryLatencies.count() < hedgeMinSamples) {
+            return hedgeInitialDelay;
+        }
+        Duration percentile = Duration.ofNanos(primaryLatencies.percentile(hedgePercentile));
+        return percentile.compareTo(hedgeMinDelay) < 0 ? hedgeMinDelay : percentile;
+    }
+
+    // Cancelling the returned future interrupts the provider call if it is still running
+    private CompletableFuture<Double> submit(WeatherProvider provider, String city) {
+        CompletableFuture<Double> call = new CompletableFuture<>();
+        Future<?> task = hedgeExecutor.submit(() -> {
+            try {
+                call.complete(callProvider(provider, city));
+            } catch (RuntimeException e) {
+                call.completeExceptionally(e);
+            }
+        });
+        call.whenComplete((temperature, ex) -> {
+            if (call.isCancelled()) {
+                task.cancel(true);
+            }
+        });
+        return call;
+    }
+
+    private double callProvider(WeatherProvider provider, String city) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            double temperature = provider.fetchTemperature(city);
+            outcome = "success";
+            if (provider == primaryProvider) {
+                primaryLatencies.record(System.nanoTime() - start);
+            }
+            return temperature;
+        } finally {
+            meterRegistry.timer("weather.provider", "provider", provider.getName(), "outcome", outcome)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static CompletableFuture<Double> firstSuccessful(CompletableFuture<Double> first,
+                                                             CompletableFuture<Double> second) {
+        CompletableFuture<Double> winner = new CompletableFuture<>();
+        AtomicInteger failures = new AtomicInteger();
+        for (CompletableFuture<Double> call : List.of(first, second)) {
+            call.whenComplete((temperature, ex) -> {
+                if (ex == null) {
+                    winner.complete(temperature);
+                } else if (failures.incrementAndGet() == 2) {
+                    winner.completeExceptionally(ex);
+                }
+            });
+        }
+        return winner;
+    }
+
+    private static RuntimeException unwrap(Throwable e) {
+        Throwable cause = e;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof RuntimeException runtimeException
+                ? runtimeException : new RestClientException(cause.getMessage(), cause);
+    }
+
+    private WeatherProvider provider(String name) {
+        return providers.stream()
+                .filter(provider -> provider.getName().equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("Unknown weather provider " + name + "."));
+    }
 
+    static String normalize(String city) {
+        return city.trim().toLowerCase(Locale.ROOT);
     }
 
 }
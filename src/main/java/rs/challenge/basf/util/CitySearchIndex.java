@@ -0,0 +1,198 @@
+package rs.challenge.basf.util;
+
+import rs.challenge.basf.model.CitySummary;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+public class CitySearchIndex {
+
+    // Same cut-off pg_trgm uses for its % operator
+    private static final double MIN_SIMILARITY = 0.3;
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Comparator<Entry> BY_POPULATION = Comparator.comparingLong(Entry::population);
+
+    // Keyed by every word start of the normalized name, so "york" finds "New York" as well
+    private final ConcurrentSkipListMap<String, Entry> byPrefix = new ConcurrentSkipListMap<>();
+    private final Map<String, Set<Entry>> byTrigram = new ConcurrentHashMap<>();
+    private final Map<Long, Entry> byId = new ConcurrentHashMap<>();
+
+    public void put(CitySummary city) {
+        remove(city.getId());
+
+        String normalized = normalize(city.getName());
+        Set<String> trigrams = trigrams(normalized);
+        Entry entry = new Entry(city, normalized, trigrams.size());
+
+        byId.put(city.getId(), entry);
+        for (String key : prefixKeys(entry)) {
+            byPrefix.put(key, entry);
+        }
+        for (String trigram : trigrams) {
+            byTrigram.computeIfAbsent(trigram, t -> ConcurrentHashMap.newKeySet()).add(entry);
+        }
+    }
+
+    public void remove(Long id) {
+        Entry entry = byId.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (String key : prefixKeys(entry)) {
+            byPrefix.remove(key);
+        }
+        for (String trigram : trigrams(entry.normalizedName)) {
+            Set<Entry> postings = byTrigram.get(trigram);
+            if (postings != null) {
+                postings.remove(entry);
+            }
+        }
+    }
+
+    public int size() {
+        return byId.size();
+    }
+
+    // Prefix matches ranked by population first, then fuzzy matches ranked by trigram similarity
+    public List<CitySummary> search(String query, int limit) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        Set<Entry> results = new LinkedHashSet<>(prefixMatches(normalized, limit));
+        if (results.size() < limit && normalized.length() >= 3) {
+            for (Entry entry : fuzzyMatches(normalized)) {
+                if (results.size() == limit) {
+                    break;
+                }
+                results.add(entry);
+            }
+        }
+
+        List<CitySummary> cities = new ArrayList<>(results.size());
+        for (Entry entry : results) {
+            cities.add(entry.city);
+        }
+        return cities;
+    }
+
+    private List<Entry> prefixMatches(String prefix, int limit) {
+        NavigableMap<String, Entry> matches = byPrefix.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+
+        // Keep the most populated matches in a min-heap bounded by the limit
+        // A name matching on two of its words shows up twice, the heap is small enough to check directly
+        PriorityQueue<Entry> top = new PriorityQueue<>(limit + 1, BY_POPULATION);
+        for (Entry entry : matches.values()) {
+            if (top.size() < limit) {
+                if (!top.contains(entry)) {
+                    top.add(entry);
+                }
+            } else if (entry.population() > top.peek().population() && !top.contains(entry)) {
+                top.poll();
+                top.add(entry);
+            }
+        }
+
+        List<Entry> ranked = new ArrayList<>(top);
+        ranked.sort(BY_POPULATION.reversed());
+        return ranked;
+    }
+
+    private List<Entry> fuzzyMatches(String normalized) {
+        Set<String> queryTrigrams = trigrams(normalized);
+
+        Map<Entry, Integer> shared = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            Set<Entry> postings = byTrigram.get(trigram);
+            if (postings != null) {
+                for (Entry entry : postings) {
+                    shared.merge(entry, 1, Integer::sum);
+                }
+            }
+        }
+
+        List<Entry> matches = new ArrayList<>();
+        Map<Entry, Double> similarities = new HashMap<>();
+        shared.forEach((entry, count) -> {
+            double similarity = (double) count / (queryTrigrams.size() + entry.trigramCount - count);
+            if (similarity >= MIN_SIMILARITY) {
+                matches.add(entry);
+                similarities.put(entry, similarity);
+            }
+        });
+        matches.sort(Comparator.<Entry>comparingDouble(similarities::get).reversed()
+                .thenComparing(BY_POPULATION.reversed()));
+        return matches;
+    }
+
+    private static List<String> prefixKeys(Entry entry) {
+        List<String> keys = new ArrayList<>();
+        String name = entry.normalizedName;
+        String suffix = "\u0000" + entry.city.getId();
+        for (int i = 0; i < name.length(); i++) {
+            if (i == 0 || name.charAt(i - 1) == ' ') {
+                keys.add(name.substring(i) + suffix);
+            }
+        }
+        return keys;
+    }
+
+    // Lower-cased, accents stripped and punctuation collapsed to single spaces
+    public static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String stripped = MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    // pg_trgm style: each word padded with two leading blanks and one trailing blank
+    static Set<String> trigrams(String normalized) {
+        Set<String> trigrams = new HashSet<>();
+        for (String word : normalized.split(" ")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            String padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(padded.substring(i, i + 3));
+            }
+        }
+        return trigrams;
+    }
+
+    private static final class Entry {
+
+        private final CitySummary city;
+        private final String normalizedName;
+        private final int trigramCount;
+
+        private Entry(CitySummary city, String normalizedName, int trigramCount) {
+            this.city = city;
+            this.normalizedName = normalizedName;
+            this.trigramCount = trigramCount;
+        }
+
+        private long population() {
+            return city.getPopulation() == null ? 0 : city.getPopulation();
+        }
+
+    }
+
+}
@@ -1,30 +1,71 @@
 package rs.challenge.basf.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtUtil {
 
     private final String JWT_SECRET_KEY = "myjwtsecret";
+    private static final String AUTHORITIES_CLAIM = "authorities";
+
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    public JwtUtil(@Value("${jwt.cache.max-size:10000}") long cacheMaxSize, MeterRegistry meterRegistry) {
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new TokenExpiry())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedTokens, "jwt.tokens");
+    }
 
     public Claims extractAllClaims(String token) {
         return Jwts.parser().setSigningKey(JWT_SECRET_KEY).parseClaimsJws(token).getBody();
     }
 
+    public VerifiedToken verify(String token) {
+        return verifiedTokens.get(hash(token), key -> {
+            Claims claims = extractAllClaims(token);
+            List<?> authorities = claims.get(AUTHORITIES_CLAIM, List.class);
+            return new VerifiedToken(claims.getSubject(), claims.getExpiration(),
+                    authorities != null ? authorities.stream().map(String::valueOf).toList() : Collections.emptyList());
+        });
+    }
+
     public String extractEmail(String token) {
-        return extractAllClaims(token).getSubject();
+        return verify(token).getSubject();
     }
 
     public String generateToken(String email){
+        return generateToken(email, Collections.emptyList());
+    }
+
+    public String generateToken(String email, Collection<? extends GrantedAuthority> authorities){
         Map<String, Object> claims = new HashMap<>();
+        claims.put(AUTHORITIES_CLAIM, authorities.stream().map(GrantedAuthority::getAuthority).toList());
         return Jwts.builder()
                 .setClaims(claims)
                 .setSubject(email)
@@ -35,11 +76,43 @@ public class JwtUtil {
     }
 
     public boolean validateToken(String token, UserDetails user) {
-        return (user.getUsername().equals(extractEmail(token)) && !isTokenExpired(token));
+        return validateToken(verify(token), user);
     }
 
-    private boolean isTokenExpired(String token){
-        return extractAllClaims(token).getExpiration().before(new Date());
+    public boolean validateToken(VerifiedToken token, UserDetails user) {
+        return (user.getUsername().equals(token.getSubject()) && !token.isExpired());
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class TokenExpiry implements Expiry<String, VerifiedToken> {
+
+        @Override
+        public long expireAfterCreate(String key, VerifiedToken token, long currentTime) {
+            if (token.getExpiration() == null) {
+                return Long.MAX_VALUE;
+            }
+            long millisLeft = token.getExpiration().getTime() - System.currentTimeMillis();
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(millisLeft, 0));
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, VerifiedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
+        @Override
+        public long expireAfterRead(String key, VerifiedToken token, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+
     }
 
 }
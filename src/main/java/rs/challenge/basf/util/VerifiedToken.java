@@ -0,0 +1,21 @@
+package rs.challenge.basf.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+public class VerifiedToken {
+
+    private final String subject;
+    private final Date expiration;
+    private final List<String> authorities;
+
+    public boolean isExpired() {
+        return expiration != null && expiration.before(new Date());
+    }
+
+}
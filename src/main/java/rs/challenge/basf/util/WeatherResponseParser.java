@@ -0,0 +1,47 @@
+package rs.challenge.basf.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public final class WeatherResponseParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private WeatherResponseParser() {
+    }
+
+    // Reads current.temp_c from a weatherapi.com response, skipping every other field without building a tree
+    public static double readTemperature(InputStream body) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Weather response is not a JSON object.");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("current".equals(field) && value == JsonToken.START_OBJECT) {
+                    return readCurrentTemperature(parser);
+                }
+                parser.skipChildren();
+            }
+        }
+        throw new IOException("Weather response has no current conditions.");
+    }
+
+    private static double readCurrentTemperature(JsonParser parser) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("temp_c".equals(field) && value.isNumeric()) {
+                return parser.getDoubleValue();
+            }
+            parser.skipChildren();
+        }
+        throw new IOException("Weather response has no current temperature.");
+    }
+
+}
@@ -0,0 +1,17 @@
+-- Schema as previously generated by ddl-auto=update, a no-op on databases that already have it
+
+CREATE TABLE IF NOT EXISTS cities (
+    id             BIGSERIAL PRIMARY KEY,
+    country        VARCHAR(255),
+    name           VARCHAR(255) CONSTRAINT cities_name_key UNIQUE,
+    population     NUMERIC(38, 0),
+    "state/region" VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS users (
+    id         BIGSERIAL PRIMARY KEY,
+    email      VARCHAR(255) CONSTRAINT users_email_key UNIQUE,
+    first_name VARCHAR(255),
+    last_name  VARCHAR(255),
+    password   VARCHAR(255)
+);
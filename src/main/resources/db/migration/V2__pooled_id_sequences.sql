@@ -0,0 +1,15 @@
+-- Ids come from sequences handing out blocks of 50 instead of a per-row column default.
+-- A nextval of n reserves n - 49 .. n, the same layout Hibernate's pooled optimizer uses,
+-- so the first value is set 50 past the current maximum.
+
+ALTER TABLE cities ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE cities ALTER COLUMN id DROP DEFAULT;
+DROP SEQUENCE IF EXISTS cities_id_seq;
+CREATE SEQUENCE cities_seq INCREMENT BY 50;
+SELECT setval('cities_seq', COALESCE(MAX(id), 0) + 50, false) FROM cities;
+
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE users ALTER COLUMN id DROP DEFAULT;
+DROP SEQUENCE IF EXISTS users_id_seq;
+CREATE SEQUENCE users_seq INCREMENT BY 50;
+SELECT setval('users_seq', COALESCE(MAX(id), 0) + 50, false) FROM users;
@@ -0,0 +1,9 @@
+-- Indexes for the /api/stats queries. The per-region rollup of one country is an index-only scan
+-- over the first one, the top-N query walks the second. The whole-table country rollup reads every
+-- row anyway and stays a sequential scan with a hash aggregate.
+
+CREATE INDEX IF NOT EXISTS cities_country_region_population_idx
+    ON cities (country, "state/region") INCLUDE (population);
+
+CREATE INDEX IF NOT EXISTS cities_population_idx
+    ON cities (population DESC) WHERE population IS NOT NULL;
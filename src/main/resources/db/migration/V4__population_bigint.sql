@@ -0,0 +1,3 @@
+-- Populations are whole numbers far below 2^63, a fixed-width column maps to a long instead of a BigInteger
+
+ALTER TABLE cities ALTER COLUMN population TYPE BIGINT;
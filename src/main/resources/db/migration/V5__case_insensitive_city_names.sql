@@ -0,0 +1,4 @@
+-- Names are unique the way the catalog compares them, trimmed and lower-cased. The repository name lookups
+-- use the same expression, so they are served by this index.
+
+CREATE UNIQUE INDEX IF NOT EXISTS cities_name_normalized_key ON cities (lower(btrim(name)));
@@ -0,0 +1,165 @@
+package rs.challenge.basf;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import rs.challenge.basf.event.CitiesChangedEvent;
+import rs.challenge.basf.model.City;
+import rs.challenge.basf.repository.CityIdGenerator;
+import rs.challenge.basf.repository.CityRepository;
+import rs.challenge.basf.request.CreateCityRequest;
+import rs.challenge.basf.request.DeleteCityRequest;
+import rs.challenge.basf.request.UpdateCityRequest;
+import rs.challenge.basf.response.BatchItemResponse;
+import rs.challenge.basf.service.CityBatchService;
+import rs.challenge.basf.service.CityCatalog;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CityBatchServiceTests {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private CityRepository cityRepository;
+
+    @Mock
+    private CityCatalog cityCatalog;
+
+    @Mock
+    private CityIdGenerator cityIdGenerator;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private CityBatchService cityBatchService;
+
+    @BeforeEach
+    public void setup() {
+        cityBatchService = new CityBatchService(jdbcTemplate, cityRepository, cityCatalog, cityIdGenerator,
+                new TransactionTemplate(transactionManager), eventPublisher);
+        ReflectionTestUtils.setField(cityBatchService, "maxItems", 3);
+        ReflectionTestUtils.setField(cityBatchService, "chunkSize", 2);
+    }
+
+    @Test
+    public void testCreateReportsPerItemStatus() {
+
+        when(cityRepository.findByNormalizedNameIn(any())).thenReturn(List.of(city(1L, "Belgrade")));
+        when(cityIdGenerator.allocate(1)).thenReturn(new long[]{10L});
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(Object[].class))).thenReturn(List.of(10L));
+
+        List<BatchItemResponse> results = cityBatchService.create(List.of(
+                new CreateCityRequest("Belgrade", "Serbia", null, "1500000"),
+                new CreateCityRequest("Novi Sad", "Serbia", null, "many"),
+                new CreateCityRequest("Nis", "Serbia", null, "260000")));
+
+        assertThat(results).extracting(BatchItemResponse::getStatus).containsExactly(400, 400, 201);
+        assertThat(results.get(2).getId()).isEqualTo(10L);
+        verify(cityRepository, times(1)).findByNormalizedNameIn(any());
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), eq(Long.class), any(Object[].class));
+        verify(eventPublisher, times(1)).publishEvent(any(CitiesChangedEvent.class));
+    }
+
+    @Test
+    public void testCreateComparesNamesIgnoringCase() {
+
+        when(cityCatalog.isLoaded()).thenReturn(true);
+        when(cityCatalog.findByNameIn(any())).thenReturn(List.of(city(1L, "Belgrade")));
+        when(cityIdGenerator.allocate(1)).thenReturn(new long[]{10L});
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(Object[].class))).thenReturn(List.of(10L));
+
+        List<BatchItemResponse> results = cityBatchService.create(List.of(
+                new CreateCityRequest("belgrade", "Serbia", null, "1500000"),
+                new CreateCityRequest("Nis", "Serbia", null, "260000"),
+                new CreateCityRequest("NIS", "Serbia", null, "260000")));
+
+        assertThat(results).extracting(BatchItemResponse::getStatus).containsExactly(400, 201, 400);
+        verifyNoInteractions(cityRepository);
+    }
+
+    @Test
+    public void testCreateConflictOnlyFailsItsItem() {
+
+        when(cityIdGenerator.allocate(2)).thenReturn(new long[]{10L, 11L});
+        // Another writer inserted "Nis" after the duplicate check, ON CONFLICT skipped only that row
+        when(jdbcTemplate.queryForList(anyString(), eq(Long.class), any(Object[].class))).thenReturn(List.of(10L));
+
+        List<BatchItemResponse> results = cityBatchService.create(List.of(
+                new CreateCityRequest("Novi Sad", "Serbia", null, "250000"),
+                new CreateCityRequest("Nis", "Serbia", null, "260000")));
+
+        assertThat(results).extracting(BatchItemResponse::getStatus).containsExactly(201, 409);
+        assertThat(results.get(0).getId()).isEqualTo(10L);
+        ArgumentCaptor<CitiesChangedEvent> event = ArgumentCaptor.forClass(CitiesChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().getCities()).extracting(City::getName).containsExactly("Novi Sad");
+    }
+
+    @Test
+    public void testUpdateChunksAndMissingCities() {
+
+        when(cityRepository.findAllById(any())).thenReturn(List.of(city(1L, "Belgrade"), city(2L, "Nis")));
+
+        List<BatchItemResponse> results = cityBatchService.update(List.of(
+                new UpdateCityRequest(1L, null, "Srbija", null, null),
+                new UpdateCityRequest(2L, null, null, null, "260000"),
+                new UpdateCityRequest(3L, null, null, null, null)));
+
+        assertThat(results).extracting(BatchItemResponse::getStatus).containsExactly(200, 200, 404);
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    public void testDeleteFailedChunkOnlyFailsItsItems() {
+
+        when(cityRepository.findAllById(any())).thenReturn(List.of(city(1L, "Belgrade"), city(2L, "Nis"),
+                city(3L, "Novi Sad")));
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new RuntimeException("deadlock"))
+                .thenReturn(new int[]{1});
+
+        List<BatchItemResponse> results = cityBatchService.delete(List.of(
+                new DeleteCityRequest(1L, null), new DeleteCityRequest(2L, null), new DeleteCityRequest(3L, null)));
+
+        assertThat(results).extracting(BatchItemResponse::getStatus).containsExactly(500, 500, 200);
+        verify(eventPublisher, times(1)).publishEvent(any(CitiesChangedEvent.class));
+    }
+
+    @Test
+    public void testBatchTooLarge() {
+
+        List<DeleteCityRequest> requests = List.of(new DeleteCityRequest(1L, null), new DeleteCityRequest(2L, null),
+                new DeleteCityRequest(3L, null), new DeleteCityRequest(4L, null));
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            cityBatchService.delete(requests);
+        });
+    }
+
+    private City city(Long id, String name) {
+        return new City(id, name, "Serbia", "Region", 10L, 0, false);
+    }
+
+}
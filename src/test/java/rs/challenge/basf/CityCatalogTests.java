@@ -0,0 +1,95 @@
+package rs.challenge.basf;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import rs.challenge.basf.event.CityChangedEvent;
+import rs.challenge.basf.model.City;
+import rs.challenge.basf.model.CitySummary;
+import rs.challenge.basf.repository.CityRepository;
+import rs.challenge.basf.service.CityCatalog;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CityCatalogTests {
+
+    @Mock
+    private CityRepository cityRepository;
+
+    private CityCatalog cityCatalog;
+
+    @BeforeEach
+    public void setup() {
+        cityCatalog = new CityCatalog(cityRepository, new SimpleMeterRegistry());
+        when(cityRepository.findAll()).thenReturn(List.of(
+                new City(1L, "Belgrade", "Serbia", "Belgrade", 1_500_000L, 0, false),
+                new City(2L, "Novi Sad", "Serbia", "Vojvodina", 250_000L, 0, false)));
+        cityCatalog.reload();
+    }
+
+    @Test
+    public void testFindByNormalizedName() {
+
+        assertThat(cityCatalog.isLoaded()).isTrue();
+        assertThat(cityCatalog.findByName(" belgrade ")).get().extracting(City::getId).isEqualTo(1L);
+        assertThat(cityCatalog.findAfter(1L, 10)).extracting(CitySummary::getName).containsExactly("Novi Sad");
+        assertThat(cityCatalog.estimatedBytes()).isPositive();
+    }
+
+    @Test
+    public void testReturnedCitiesAreCopies() {
+
+        cityCatalog.findById(1L).get().setTemperature(30);
+
+        assertThat(cityCatalog.findById(1L).get().getTemperature()).isZero();
+    }
+
+    @Test
+    public void testChangesKeepCatalogConsistent() {
+
+        City renamed = new City(1L, "Beograd", "Serbia", "Belgrade", 1_500_000L, 0, false);
+        cityCatalog.onCityChanged(new CityChangedEvent(CityChangedEvent.Type.UPDATED, renamed));
+        cityCatalog.onCityChanged(new CityChangedEvent(CityChangedEvent.Type.DELETED, cityCatalog.findById(2L).get()));
+
+        assertThat(cityCatalog.findByName("Belgrade")).isEmpty();
+        assertThat(cityCatalog.findByName("Beograd")).isPresent();
+        assertThat(cityCatalog.findById(2L)).isEmpty();
+        assertThat(cityCatalog.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testChangesDuringReloadAreKept() {
+
+        City created = new City(3L, "Nis", "Serbia", "Nisava", 260_000L, 0, false);
+        when(cityRepository.findAll()).thenAnswer(invocation -> {
+            // Committed after the snapshot was taken, the event lands while the old index is still in use
+            cityCatalog.onCityChanged(new CityChangedEvent(CityChangedEvent.Type.CREATED, created));
+            return List.of(new City(1L, "Belgrade", "Serbia", "Belgrade", 1_500_000L, 0, false));
+        });
+
+        cityCatalog.reload();
+
+        assertThat(cityCatalog.findByName("Nis")).isPresent();
+        assertThat(cityCatalog.findById(2L)).isEmpty();
+        assertThat(cityCatalog.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void testVersionTagChangesWithEveryChange() {
+
+        String loaded = cityCatalog.versionTag();
+        City renamed = new City(1L, "Beograd", "Serbia", "Belgrade", 1_500_000L, 0, false);
+        cityCatalog.onCityChanged(new CityChangedEvent(CityChangedEvent.Type.UPDATED, renamed));
+
+        assertThat(cityCatalog.versionTag()).isNotEqualTo(loaded);
+        assertThat(cityCatalog.versionTag()).isEqualTo(cityCatalog.versionTag());
+    }
+
+}
@@ -0,0 +1,151 @@
+package rs.challenge.basf;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import rs.challenge.basf.event.CitiesChangedEvent;
+import rs.challenge.basf.event.CitiesImportedEvent;
+import rs.challenge.basf.event.CityChangedEvent;
+import rs.challenge.basf.model.City;
+import rs.challenge.basf.repository.CityRepository;
+import rs.challenge.basf.service.CityChangeNotifier;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CityChangeNotifierTests {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private CityRepository cityRepository;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @InjectMocks
+    private CityChangeNotifier notifier;
+
+    @Test
+    public void testLocalChangeIsBroadcast() {
+
+        City city = new City(7L, "Belgrade", "Serbia", "Belgrade", 10L, 0, false);
+
+        notifier.onCityChanged(new CityChangedEvent(CityChangedEvent.Type.UPDATED, city));
+        notifier.onCityChanged(new CityChangedEvent(CityChangedEvent.Type.UPDATED, city, true));
+
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), eq(CityChangeNotifier.CHANNEL),
+                eq(ReflectionTestUtils.getField(notifier, "instanceId") + ":UPDATED:7"));
+    }
+
+    @Test
+    public void testFailedNotifyDoesNotFailTheWrite() {
+
+        City city = new City(7L, "Belgrade", "Serbia", "Belgrade", 10L, 0, false);
+        when(jdbcTemplate.queryForList(anyString(), any(Object[].class)))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"));
+
+        notifier.onCityChanged(new CityChangedEvent(CityChangedEvent.Type.DELETED, city));
+
+        verify(jdbcTemplate).queryForList(anyString(), any(Object[].class));
+    }
+
+    @Test
+    public void testRemoteUpdateReloadsCity() {
+
+        City city = new City(7L, "Belgrade", "Serbia", "Belgrade", 10L, 0, false);
+        when(cityRepository.findById(7L)).thenReturn(Optional.of(city));
+
+        notifier.handle("other-instance:UPDATED:7");
+
+        ArgumentCaptor<CityChangedEvent> event = ArgumentCaptor.forClass(CityChangedEvent.class);
+        verify(transactionTemplate).executeWithoutResult(any());
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().isRemote()).isTrue();
+        assertThat(event.getValue().getCity()).isSameAs(city);
+    }
+
+    @Test
+    public void testRemoteUpdateOfMissingCityBecomesDelete() {
+
+        when(cityRepository.findById(7L)).thenReturn(Optional.empty());
+
+        notifier.handle("other-instance:CREATED:7");
+
+        ArgumentCaptor<CityChangedEvent> event = ArgumentCaptor.forClass(CityChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().getType()).isEqualTo(CityChangedEvent.Type.DELETED);
+        assertThat(event.getValue().getCity().getId()).isEqualTo(7L);
+    }
+
+    @Test
+    public void testBatchChunkIsBroadcastInFewNotifications() {
+
+        List<City> cities = LongStream.rangeClosed(1, 301)
+                .mapToObj(id -> new City(id, "City " + id, "Serbia", "Region", 10L, 0, false))
+                .toList();
+
+        notifier.onCitiesChanged(new CitiesChangedEvent(CityChangedEvent.Type.CREATED, cities));
+
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate, times(2)).queryForList(anyString(), eq(CityChangeNotifier.CHANNEL), payload.capture());
+        String prefix = ReflectionTestUtils.getField(notifier, "instanceId") + ":CREATED:";
+        assertThat(payload.getAllValues().get(0).toString()).startsWith(prefix + "1,2,3,").endsWith(",299,300");
+        assertThat(payload.getAllValues().get(1)).isEqualTo(prefix + "301");
+    }
+
+    @Test
+    public void testRemoteChunkIsReloadedAtOnce() {
+
+        City city = new City(7L, "Belgrade", "Serbia", "Belgrade", 10L, 0, false);
+        when(cityRepository.findAllById(List.of(7L, 8L))).thenReturn(List.of(city));
+
+        notifier.handle("other-instance:UPDATED:7,8");
+
+        ArgumentCaptor<CitiesChangedEvent> events = ArgumentCaptor.forClass(CitiesChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertThat(events.getAllValues().get(0).getType()).isEqualTo(CityChangedEvent.Type.UPDATED);
+        assertThat(events.getAllValues().get(0).getCities()).containsExactly(city);
+        assertThat(events.getAllValues().get(1).getType()).isEqualTo(CityChangedEvent.Type.DELETED);
+        assertThat(events.getAllValues().get(1).getCities()).extracting(City::getId).containsExactly(8L);
+        assertThat(events.getAllValues()).allMatch(CitiesChangedEvent::isRemote);
+        verify(cityRepository, never()).findById(any());
+    }
+
+    @Test
+    public void testOwnNotificationsAreIgnored() {
+
+        notifier.handle(ReflectionTestUtils.getField(notifier, "instanceId") + ":IMPORTED:10");
+        verifyNoInteractions(eventPublisher);
+
+        notifier.handle("other-instance:IMPORTED:10");
+        verify(eventPublisher).publishEvent(any(CitiesImportedEvent.class));
+    }
+
+}
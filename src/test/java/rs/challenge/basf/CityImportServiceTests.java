@@ -0,0 +1,144 @@
+package rs.challenge.basf;
+
+import org.apache.commons.csv.CSVRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import rs.challenge.basf.event.CitiesImportedEvent;
+import rs.challenge.basf.repository.CityIdGenerator;
+import rs.challenge.basf.response.ImportResponse;
+import rs.challenge.basf.service.CityImportService;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CityImportServiceTests {
+
+    private static final String HEADER = "id,country,name,population,region\n";
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private CityIdGenerator cityIdGenerator;
+
+    @Mock
+    private ResourceLoader resourceLoader;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Spy
+    private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+
+    @InjectMocks
+    private CityImportService cityImportService;
+
+    @BeforeEach
+    public void setup() {
+        ReflectionTestUtils.setField(cityImportService, "chunkSize", 2);
+        ReflectionTestUtils.setField(cityImportService, "writers", 2);
+    }
+
+    @Test
+    public void testParseRow() throws IOException {
+
+        List<CSVRecord> records = CityImportService.CSV_FORMAT.parse(new StringReader(HEADER
+                + "1,Serbia,Belgrade,1500000,Belgrade\n"
+                + "2,Japan,Tokyo,37732000.0,Tokyo\n"
+                + "3,Peru,Lima,null,Lima\n"
+                + "4,Chile,,,\n")).getRecords();
+
+        assertThat(CityImportService.parseRow(records.get(0)))
+                .containsExactly("Belgrade", "Serbia", "Belgrade", 1500000L);
+        assertThat(CityImportService.parseRow(records.get(1))).containsExactly("Tokyo", "Japan", "Tokyo", 37732000L);
+        assertThat(CityImportService.parseRow(records.get(2))).containsExactly("Lima", "Peru", "Lima", null);
+        assertThat(CityImportService.parseRow(records.get(3))).containsExactly("", "Chile", "", null);
+    }
+
+    @Test
+    public void testImportWritesChunksAndCountsSkippedRows() throws IOException {
+
+        when(cityIdGenerator.allocate(anyInt())).thenAnswer(invocation -> new long[(int) invocation.getArgument(0)]);
+        // Five rows in chunks of two, two of the rows already existed and were skipped by ON CONFLICT
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(2, 1, 0);
+
+        ImportResponse response = cityImportService.importCities(csv(5));
+
+        assertThat(response.getRowsRead()).isEqualTo(5);
+        assertThat(response.getRowsInserted()).isEqualTo(3);
+        verify(jdbcTemplate, times(3)).update(anyString(), any(Object[].class));
+        verify(cityIdGenerator, times(2)).allocate(2);
+        verify(cityIdGenerator, times(1)).allocate(1);
+
+        ArgumentCaptor<CitiesImportedEvent> event = ArgumentCaptor.forClass(CitiesImportedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertThat(event.getValue().getRowsInserted()).isEqualTo(3);
+        assertThat(event.getValue().isRemote()).isFalse();
+    }
+
+    @Test
+    public void testImportOfExistingRowsPublishesNoEvent() throws IOException {
+
+        when(cityIdGenerator.allocate(anyInt())).thenAnswer(invocation -> new long[(int) invocation.getArgument(0)]);
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenReturn(0);
+
+        ImportResponse response = cityImportService.importCities(csv(2));
+
+        assertThat(response.getRowsInserted()).isZero();
+        verifyNoInteractions(eventPublisher);
+    }
+
+    @Test
+    public void testFailedChunkFailsImportAndStopsWriters() throws IOException, InterruptedException {
+
+        when(cityIdGenerator.allocate(anyInt())).thenAnswer(invocation -> new long[(int) invocation.getArgument(0)]);
+        when(jdbcTemplate.update(anyString(), any(Object[].class))).thenThrow(new RuntimeException("connection lost"));
+
+        RuntimeException exception = assertThrows(RuntimeException.class,
+                () -> cityImportService.importCities(csv(5)));
+
+        assertThat(exception.getMessage()).isEqualTo("Error while importing cities: connection lost");
+        verify(eventPublisher, never()).publishEvent(any());
+        for (int i = 0; i < 50 && writerThreadsAlive(); i++) {
+            Thread.sleep(20);
+        }
+        assertThat(writerThreadsAlive()).isFalse();
+    }
+
+    private static ByteArrayResource csv(int rows) {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 1; i <= rows; i++) {
+            csv.append(i).append(",Serbia,City ").append(i).append(',').append(i * 1000).append(",Region\n");
+        }
+        return new ByteArrayResource(csv.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean writerThreadsAlive() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .anyMatch(thread -> thread.getName().startsWith("city-import-"));
+    }
+
+}
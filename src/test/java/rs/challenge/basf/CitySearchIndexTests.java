@@ -0,0 +1,69 @@
+package rs.challenge.basf;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rs.challenge.basf.model.CitySummary;
+import rs.challenge.basf.util.CitySearchIndex;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CitySearchIndexTests {
+
+    private CitySearchIndex index;
+
+    @BeforeEach
+    public void setup() {
+        index = new CitySearchIndex();
+        index.put(city(1L, "Belgrade", 1_166_763));
+        index.put(city(2L, "Bela Crkva", 8_659));
+        index.put(city(3L, "Belo Horizonte", 2_315_560));
+        index.put(city(4L, "New York", 8_336_817));
+        index.put(city(5L, "Zürich", 421_878));
+    }
+
+    @Test
+    public void testPrefixRankedByPopulation() {
+
+        List<CitySummary> results = index.search("BEL", 10);
+
+        assertThat(results).extracting(CitySummary::getName)
+                .containsExactly("Belo Horizonte", "Belgrade", "Bela Crkva");
+    }
+
+    @Test
+    public void testPrefixMatchesWordStartAndAccents() {
+
+        assertThat(index.search("york", 10)).extracting(CitySummary::getName).containsExactly("New York");
+        assertThat(index.search("zur", 10)).extracting(CitySummary::getName).containsExactly("Zürich");
+    }
+
+    @Test
+    public void testFuzzyMatchToleratesTypos() {
+
+        List<CitySummary> results = index.search("belgrad", 1);
+        assertThat(results).extracting(CitySummary::getName).containsExactly("Belgrade");
+
+        results = index.search("bleggrade", 10);
+        assertThat(results).extracting(CitySummary::getName).contains("Belgrade");
+    }
+
+    @Test
+    public void testLimitAndRemove() {
+
+        assertThat(index.search("bel", 1)).extracting(CitySummary::getName).containsExactly("Belo Horizonte");
+
+        index.remove(3L);
+        index.put(city(1L, "Beograd", 1_166_763));
+
+        assertThat(index.size()).isEqualTo(4);
+        assertThat(index.search("bel", 10)).extracting(CitySummary::getName).containsExactly("Bela Crkva");
+        assertThat(index.search("beog", 10)).extracting(CitySummary::getName).containsExactly("Beograd");
+    }
+
+    private CitySummary city(Long id, String name, long population) {
+        return new CitySummary(id, name, "Country", "Region", population);
+    }
+
+}
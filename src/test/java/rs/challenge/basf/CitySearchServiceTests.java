@@ -0,0 +1,64 @@
+package rs.challenge.basf;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import rs.challenge.basf.event.CityChangedEvent;
+import rs.challenge.basf.model.City;
+import rs.challenge.basf.model.CitySummary;
+import rs.challenge.basf.repository.CityRepository;
+import rs.challenge.basf.service.CitySearchService;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CitySearchServiceTests {
+
+    @Mock
+    private CityRepository cityRepository;
+
+    private CitySearchService citySearchService;
+
+    @BeforeEach
+    public void setup() {
+        citySearchService = new CitySearchService(cityRepository);
+        when(cityRepository.streamSummariesOrderById()).thenReturn(Stream.of(
+                new CitySummary(1L, "Belgrade", "Serbia", "Belgrade", 1_500_000L),
+                new CitySummary(2L, "Novi Sad", "Serbia", "Vojvodina", 250_000L)));
+        citySearchService.reload();
+    }
+
+    @Test
+    public void testReloadReadsSummaries() {
+
+        assertThat(citySearchService.search("bel", 10)).extracting(CitySummary::getName).containsExactly("Belgrade");
+        verify(cityRepository, never()).findAll();
+    }
+
+    @Test
+    public void testChangesDuringReloadAreKept() {
+
+        City created = new City(3L, "Nis", "Serbia", "Nisava", 260_000L, 0, false);
+        City deleted = new City(1L, "Belgrade", "Serbia", "Belgrade", 1_500_000L, 0, false);
+        when(cityRepository.streamSummariesOrderById()).thenAnswer(invocation -> {
+            // Committed while the table is read, the events land on the index that is about to be replaced
+            citySearchService.onCityChanged(new CityChangedEvent(CityChangedEvent.Type.CREATED, created));
+            citySearchService.onCityChanged(new CityChangedEvent(CityChangedEvent.Type.DELETED, deleted));
+            return Stream.of(new CitySummary(1L, "Belgrade", "Serbia", "Belgrade", 1_500_000L));
+        });
+
+        citySearchService.reload();
+
+        assertThat(citySearchService.search("nis", 10)).extracting(CitySummary::getName).containsExactly("Nis");
+        assertThat(citySearchService.search("bel", 10)).isEmpty();
+        assertThat(citySearchService.search("novi", 10)).isEmpty();
+    }
+
+}
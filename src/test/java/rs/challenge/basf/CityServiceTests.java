@@ -5,24 +5,40 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DuplicateKeyException;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.client.RestClientException;
+import rs.challenge.basf.event.CityChangedEvent;
 import rs.challenge.basf.model.City;
+import rs.challenge.basf.model.CitySummary;
+import rs.challenge.basf.model.TemperatureReading;
 import rs.challenge.basf.repository.CityRepository;
 import rs.challenge.basf.request.CreateCityRequest;
 import rs.challenge.basf.request.UpdateCityRequest;
+import rs.challenge.basf.response.CityTemperatureResponse;
+import rs.challenge.basf.service.CityCatalog;
 import rs.challenge.basf.service.CityService;
+import rs.challenge.basf.service.WeatherPrefetchService;
 import rs.challenge.basf.service.WeatherService;
 
-import java.math.BigInteger;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,9 +47,21 @@ public class CityServiceTests {
     @Mock
     private CityRepository cityRepository;
 
+    @Mock
+    private CityCatalog cityCatalog;
+
     @Mock
     private WeatherService weatherService;
 
+    @Mock
+    private WeatherPrefetchService weatherPrefetchService;
+
+    @Spy
+    private SyncTaskExecutor lookupExecutor = new SyncTaskExecutor();
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private CityService cityService;
 
@@ -44,31 +72,34 @@ public class CityServiceTests {
         city = new City(
                 7085L,
                 "RandomName", "RandomCountry",
-                "RandomRegion", BigInteger.valueOf(50715),
-                14);
+                "RandomRegion", 50715L,
+                14, false);
     }
 
     @Test
     public void testFindCitySuccess() {
 
-        when(cityRepository.findByName(any(String.class))).thenReturn(Optional.ofNullable(city));
-        when(weatherService.getTemperature(any(String.class))).thenReturn(10.0);
+        when(cityRepository.findByNormalizedName(any(String.class))).thenReturn(Optional.ofNullable(city));
+        when(weatherService.getTemperature(any(String.class))).thenReturn(new TemperatureReading(10.0, false));
 
-        City c = cityService.findByName("Ibiza");
+        City c = cityService.findByNameAsync("Ibiza").join();
 
         assertThat(c).isNotNull();
         assertThat(c.getId()).isEqualTo(city.getId());
+        verify(weatherPrefetchService, times(1)).recordRequest("Ibiza");
     }
 
     @Test
-    public void testFindCityNoSuchElementException() {
+    public void testFindCityServedFromCatalog() {
 
-        when(cityRepository.findByName(any(String.class))).thenReturn(Optional.empty());
+        when(cityCatalog.isLoaded()).thenReturn(true);
+        when(cityCatalog.findByName("ibiza")).thenReturn(Optional.ofNullable(city));
+        when(weatherService.getTemperature(any(String.class))).thenReturn(new TemperatureReading(10.0, false));
 
-        assertThrows(NoSuchElementException.class, () -> {
-           cityService.findByName("RandomCityName");
-        });
+        City c = cityService.findByNameAsync("ibiza").join();
 
+        assertThat(c.getId()).isEqualTo(city.getId());
+        verifyNoInteractions(cityRepository);
     }
 
     @Test
@@ -76,31 +107,180 @@ public class CityServiceTests {
 
         when(weatherService.getTemperature(any(String.class)))
                 .thenThrow(new RestClientException("Error fetching temperature data for city" + city + "."));
-        when(cityRepository.findByName(any(String.class))).thenReturn(Optional.ofNullable(city));
+        when(cityRepository.findByNormalizedName(any(String.class))).thenReturn(Optional.ofNullable(city));
 
-        Exception exception = assertThrows(RestClientException.class, () -> {
-            cityService.findByName("Ibiza");
+        Exception exception = assertThrows(CompletionException.class, () -> {
+            cityService.findByNameAsync("Ibiza").join();
         });
 
+        assertThat(exception.getCause()).isInstanceOf(RestClientException.class);
         String expectedMessage = "Error fetching temperature data for city" + city + ".";
-        String actualMessage = exception.getMessage();
+        String actualMessage = exception.getCause().getMessage();
 
         assertTrue(actualMessage.contains(expectedMessage));
 
     }
 
+    @Test
+    public void testFindCityAsyncSuccess() {
+
+        when(cityRepository.findByNormalizedName(any(String.class))).thenReturn(Optional.ofNullable(city));
+        when(weatherService.getTemperature(any(String.class))).thenReturn(new TemperatureReading(10.0, false));
+
+        City c = cityService.findByNameAsync("Ibiza").join();
+
+        assertThat(c).isNotNull();
+        assertThat(c.getId()).isEqualTo(city.getId());
+        assertThat(c.getTemperature()).isEqualTo(10);
+    }
+
+    @Test
+    public void testFindCityAsyncStaleTemperature() {
+
+        when(cityRepository.findByNormalizedName(any(String.class))).thenReturn(Optional.ofNullable(city));
+        when(weatherService.getTemperature(any(String.class))).thenReturn(new TemperatureReading(7.6, true));
+
+        City c = cityService.findByNameAsync("Ibiza").join();
+
+        assertThat(c.getTemperature()).isEqualTo(8);
+        assertThat(c.isTemperatureStale()).isTrue();
+    }
+
+    @Test
+    public void testFindCityAsyncCachedTemperatureSkipsExecutor() {
+
+        when(cityCatalog.isLoaded()).thenReturn(true);
+        when(cityCatalog.findByName("Ibiza")).thenReturn(Optional.ofNullable(city));
+        when(weatherService.getCachedTemperature("Ibiza")).thenReturn(Optional.of(new TemperatureReading(10.0, false)));
+
+        CompletableFuture<City> c = cityService.findByNameAsync("Ibiza");
+
+        assertThat(c).isCompleted();
+        assertThat(c.join().getTemperature()).isEqualTo(10);
+        verify(lookupExecutor, never()).execute(any());
+        verify(weatherService, never()).getTemperature(any());
+        verify(weatherPrefetchService).recordRequest("Ibiza");
+    }
+
+    @Test
+    public void testFindCityAsyncNoSuchElementException() {
+
+        when(cityRepository.findByNormalizedName(any(String.class))).thenReturn(Optional.empty());
+
+        Exception exception = assertThrows(CompletionException.class, () -> {
+            cityService.findByNameAsync("RandomCityName").join();
+        });
+
+        assertThat(exception.getCause()).isInstanceOf(NoSuchElementException.class);
+        verifyNoInteractions(weatherService);
+    }
+
+    @Test
+    public void testFindCityAsyncUnknownInCatalogSkipsWeather() {
+
+        when(cityCatalog.isLoaded()).thenReturn(true);
+        when(cityCatalog.findByName("RandomCityName")).thenReturn(Optional.empty());
+
+        Exception exception = assertThrows(CompletionException.class, () -> {
+            cityService.findByNameAsync("RandomCityName").join();
+        });
+
+        assertThat(exception.getCause()).isInstanceOf(NoSuchElementException.class);
+        verifyNoInteractions(weatherService, cityRepository);
+    }
+
+    @Test
+    public void testFindTemperaturesPartialResults() {
+
+        ReflectionTestUtils.setField(cityService, "bulkParallelism", 4);
+        ReflectionTestUtils.setField(cityService, "bulkMaxNames", 10);
+
+        when(cityRepository.findByNormalizedNameIn(anyCollection())).thenReturn(List.of(city));
+        when(weatherService.getTemperature("RandomName")).thenReturn(new TemperatureReading(10.0, false));
+
+        List<CityTemperatureResponse> results = cityService
+                .findTemperatures(List.of("RandomName", "Unknown", "RandomName")).join();
+
+        assertThat(results).hasSize(2);
+        assertThat(results.get(0).getName()).isEqualTo("RandomName");
+        assertThat(results.get(0).getTemperature()).isEqualTo(10);
+        assertThat(results.get(1).getName()).isEqualTo("Unknown");
+        assertThat(results.get(1).getError()).isEqualTo("No data for given city.");
+        verify(weatherService, times(1)).getTemperature("RandomName");
+    }
+
+    @Test
+    public void testFindTemperaturesTooManyNames() {
+
+        ReflectionTestUtils.setField(cityService, "bulkMaxNames", 1);
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            cityService.findTemperatures(List.of("First", "Second"));
+        });
+    }
+
+    @Test
+    public void testFindTemperaturesBlankName() {
+
+        assertThrows(IllegalArgumentException.class, () -> {
+            cityService.findTemperatures(Arrays.asList("First", null));
+        });
+        verifyNoInteractions(weatherService, cityRepository);
+    }
+
+    @Test
+    public void testFindAfterLimitsPageSize() {
+
+        CitySummary summary = CitySummary.from(city);
+        when(cityRepository.findSummariesAfter(any(Long.class), any(PageRequest.class)))
+                .thenReturn(List.of(summary));
+
+        List<CitySummary> cities = cityService.findAfter(0L, 5000);
+
+        assertThat(cities).containsExactly(summary);
+        verify(cityRepository, times(1))
+                .findSummariesAfter(0L, PageRequest.of(0, CityService.MAX_PAGE_SIZE));
+    }
+
+    @Test
+    public void testETagsFollowCatalogVersion() {
+
+        assertThat(cityService.listETag("json")).isNull();
+        assertThat(cityService.cityETag()).isNull();
+
+        ReflectionTestUtils.setField(cityService, "temperatureMaxAge", Duration.ofMinutes(5));
+        when(cityCatalog.isLoaded()).thenReturn(true);
+        when(cityCatalog.versionTag()).thenReturn("abc-3");
+
+        assertThat(cityService.listETag("json")).isEqualTo("W/\"abc-3-json\"");
+        assertThat(cityService.cityETag()).startsWith("W/\"abc-3-");
+        verifyNoInteractions(cityRepository, weatherService);
+    }
+
     @Test
     public void testCreateCitySuccess() {
 
         CreateCityRequest cityRequest = getCreateCityRequest();
         City newCity = getCityFromRequest(cityRequest);
 
-        when(cityRepository.save(any(City.class))).thenReturn(newCity);
+        when(cityRepository.saveAndFlush(any(City.class))).thenReturn(newCity);
 
         City c = cityService.create(cityRequest);
 
         assertThat(c).isNotNull();
         assertThat(c).isEqualTo(newCity);
+        verify(eventPublisher, times(1)).publishEvent(any(CityChangedEvent.class));
+    }
+
+    @Test
+    public void testCreateBeforeCatalogLoadsComparesNormalizedNames() {
+
+        when(cityRepository.findByNormalizedName("belgrade")).thenReturn(Optional.ofNullable(city));
+
+        assertThrows(DuplicateKeyException.class, () -> {
+            cityService.create(new CreateCityRequest(" BELGRADE ", "Serbia", null, "1500000"));
+        });
+        verify(cityRepository, never()).saveAndFlush(any());
     }
 
     @Test
@@ -108,7 +288,7 @@ public class CityServiceTests {
 
         CreateCityRequest cityRequest = getCreateCityRequest();
 
-        when(cityRepository.findByName(any(String.class))).thenReturn(Optional.ofNullable(city));
+        when(cityRepository.findByNormalizedName(any(String.class))).thenReturn(Optional.ofNullable(city));
 
         Exception exception = assertThrows(DuplicateKeyException.class, () -> {
             cityService.create(cityRequest);
@@ -128,7 +308,7 @@ public class CityServiceTests {
         City updatedCity = getCityFromRequest(cityRequest);
 
         when(cityRepository.findById(any(Long.class))).thenReturn(Optional.ofNullable(city));
-        when(cityRepository.save(any(City.class))).thenReturn(updatedCity);
+        when(cityRepository.saveAndFlush(any(City.class))).thenReturn(updatedCity);
 
         City c = cityService.update(cityRequest);
 
@@ -173,17 +353,21 @@ public class CityServiceTests {
     @Test
     public void testDeleteCityByNameSuccess() {
 
-        when(cityRepository.findByName(any(String.class))).thenReturn(Optional.ofNullable(city));
-        cityService.deleteByName("RandomName");
+        City managed = new City(city.getId(), city.getName(), city.getCountry(), city.getStateRegion(),
+                city.getPopulation(), 0, false);
+        when(cityCatalog.isLoaded()).thenReturn(true);
+        when(cityCatalog.findByName("randomname")).thenReturn(Optional.ofNullable(city));
+        when(cityRepository.findById(city.getId())).thenReturn(Optional.of(managed));
+        cityService.deleteByName("randomname");
 
-        verify(cityRepository, times(1)).delete(city);
+        verify(cityRepository, times(1)).delete(managed);
 
     }
 
     @Test
     public void testDeleteCityByNameNoSuchElementException() {
 
-        when(cityRepository.findByName(any(String.class))).thenReturn(Optional.empty());
+        when(cityRepository.findByNormalizedName(any(String.class))).thenReturn(Optional.empty());
 
         assertThrows(NoSuchElementException.class, () -> {
             cityService.deleteByName("RandomName");
@@ -206,7 +390,7 @@ public class CityServiceTests {
         newCity.setName(cityRequest.getName());
         newCity.setCountry(cityRequest.getCountry());
         newCity.setStateRegion(cityRequest.getStateRegion());
-        newCity.setPopulation(new BigInteger(cityRequest.getPopulation()));
+        newCity.setPopulation(Long.valueOf(cityRequest.getPopulation()));
         return newCity;
     }
 
@@ -215,7 +399,7 @@ public class CityServiceTests {
         city.setName(cityRequest.getName());
         city.setCountry(cityRequest.getCountry());
         city.setStateRegion(cityRequest.getStateRegion());
-        city.setPopulation(new BigInteger(cityRequest.getPopulation()));
+        city.setPopulation(Long.valueOf(cityRequest.getPopulation()));
         return city;
     }
 
@@ -0,0 +1,74 @@
+package rs.challenge.basf;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import rs.challenge.basf.repository.CityRepository;
+import rs.challenge.basf.response.PopulationRollupResponse;
+import rs.challenge.basf.response.PopulationTotalsResponse;
+import rs.challenge.basf.service.CityStatsService;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class CityStatsServiceTests {
+
+    @Mock
+    private CityRepository cityRepository;
+
+    private CityStatsService cityStatsService;
+
+    @BeforeEach
+    public void setup() {
+        cityStatsService = new CityStatsService(cityRepository, new SimpleMeterRegistry(), Duration.ofHours(1), 100);
+    }
+
+    @Test
+    public void testResultsCachedUntilInvalidated() {
+
+        when(cityRepository.findPopulationTotals())
+                .thenReturn(new PopulationTotalsResponse(2, 1, 1_750_000L));
+
+        cityStatsService.totals();
+        PopulationTotalsResponse totals = cityStatsService.totals();
+
+        assertThat(totals.getPopulation()).isEqualTo(1_750_000L);
+        verify(cityRepository, times(1)).findPopulationTotals();
+
+        cityStatsService.invalidate();
+        cityStatsService.totals();
+
+        verify(cityRepository, times(2)).findPopulationTotals();
+    }
+
+    @Test
+    public void testRollupsCachedPerCountry() {
+
+        when(cityRepository.findPopulationByRegion(anyString()))
+                .thenReturn(List.of(new PopulationRollupResponse("Serbia", "Vojvodina", 1, 10L)));
+
+        cityStatsService.byRegion("Serbia");
+        cityStatsService.byRegion("Serbia");
+        cityStatsService.byRegion("Italy");
+
+        verify(cityRepository, times(1)).findPopulationByRegion("Serbia");
+        verify(cityRepository, times(1)).findPopulationByRegion("Italy");
+    }
+
+    @Test
+    public void testMostPopulatedLimitCapped() {
+
+        cityStatsService.mostPopulated(null, 10_000);
+
+        verify(cityRepository, times(1)).findMostPopulated(PageRequest.of(0, CityStatsService.MAX_TOP));
+    }
+
+}
@@ -0,0 +1,43 @@
+package rs.challenge.basf;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestClientException;
+import rs.challenge.basf.provider.FileWeatherProvider;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FileWeatherProviderTests {
+
+    private FileWeatherProvider provider;
+
+    @BeforeEach
+    public void setup() throws IOException {
+        String csv = "city,temp_c\nBelgrade, 21.4\nNovi Sad,19\n";
+        provider = new FileWeatherProvider();
+        ReflectionTestUtils.setField(provider, "location", new ByteArrayResource(csv.getBytes(StandardCharsets.UTF_8)));
+        provider.load();
+    }
+
+    @Test
+    public void testFetchTemperatureSuccess() {
+
+        assertThat(provider.fetchTemperature("belgrade")).isEqualTo(21.4);
+        assertThat(provider.fetchTemperature("novi sad")).isEqualTo(19.0);
+    }
+
+    @Test
+    public void testFetchTemperatureUnknownCity() {
+
+        assertThrows(RestClientException.class, () -> {
+            provider.fetchTemperature("ibiza");
+        });
+    }
+
+}
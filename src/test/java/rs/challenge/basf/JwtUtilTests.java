@@ -0,0 +1,71 @@
+package rs.challenge.basf;
+
+import io.jsonwebtoken.SignatureException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import rs.challenge.basf.util.JwtUtil;
+import rs.challenge.basf.util.VerifiedToken;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class JwtUtilTests {
+
+    private JwtUtil jwtUtil;
+
+    @BeforeEach
+    public void setup() {
+        jwtUtil = new JwtUtil(100, new SimpleMeterRegistry());
+    }
+
+    @Test
+    public void testVerifyTokenSuccess() {
+
+        String jwt = jwtUtil.generateToken("user1@gmail.com");
+
+        VerifiedToken token = jwtUtil.verify(jwt);
+
+        assertThat(token.getSubject()).isEqualTo("user1@gmail.com");
+        assertThat(token.isExpired()).isFalse();
+        assertThat(jwtUtil.validateToken(token, getUser("user1@gmail.com"))).isTrue();
+        assertThat(jwtUtil.validateToken(token, getUser("user2@gmail.com"))).isFalse();
+    }
+
+    @Test
+    public void testVerifyTokenCached() {
+
+        String jwt = jwtUtil.generateToken("user1@gmail.com");
+
+        assertThat(jwtUtil.verify(jwt)).isSameAs(jwtUtil.verify(jwt));
+    }
+
+    @Test
+    public void testVerifyTokenAuthorities() {
+
+        String jwt = jwtUtil.generateToken("user1@gmail.com", AuthorityUtils.createAuthorityList("ROLE_ADMIN"));
+
+        assertThat(jwtUtil.verify(jwt).getAuthorities()).containsExactly("ROLE_ADMIN");
+    }
+
+    @Test
+    public void testVerifyTokenInvalidSignature() {
+
+        String jwt = jwtUtil.generateToken("user1@gmail.com");
+        String tampered = jwt.substring(0, jwt.length() - 2) + (jwt.endsWith("AA") ? "BB" : "AA");
+
+        assertThrows(SignatureException.class, () -> {
+            jwtUtil.verify(tampered);
+        });
+    }
+
+    private UserDetails getUser(String email) {
+        return new User(email, "password", Collections.emptyList());
+    }
+
+}
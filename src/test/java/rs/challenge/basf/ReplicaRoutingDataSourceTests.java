@@ -0,0 +1,174 @@
+package rs.challenge.basf;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import rs.challenge.basf.configuration.ReplicaRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReplicaRoutingDataSourceTests {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource firstReplica;
+
+    @Mock
+    private DataSource secondReplica;
+
+    @Mock
+    private Connection primaryConnection;
+
+    @Mock
+    private Connection replicaConnection;
+
+    @AfterEach
+    public void cleanup() {
+        TransactionSynchronizationManager.clear();
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    public void testWritesAndNonTransactionalCallsUsePrimary() throws SQLException {
+
+        ReplicaRoutingDataSource dataSource = createDataSource(Duration.ZERO);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+        verifyNoInteractions(firstReplica, secondReplica);
+    }
+
+    @Test
+    public void testReadOnlyTransactionsRotateOverReplicas() throws SQLException {
+
+        ReplicaRoutingDataSource dataSource = createDataSource(Duration.ZERO);
+        when(firstReplica.getConnection()).thenReturn(replicaConnection);
+        when(secondReplica.getConnection()).thenReturn(replicaConnection);
+
+        readOnlyTransaction();
+        dataSource.getConnection();
+        dataSource.getConnection();
+
+        verify(firstReplica, times(1)).getConnection();
+        verify(secondReplica, times(1)).getConnection();
+        verifyNoInteractions(primary);
+    }
+
+    @Test
+    public void testReadsRightAfterWriteUsePrimaryForWriter() throws SQLException {
+
+        ReplicaRoutingDataSource dataSource = createDataSource(Duration.ofMinutes(1));
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(firstReplica.getConnection()).thenReturn(replicaConnection);
+
+        MockHttpServletResponse writeResponse = new MockHttpServletResponse();
+        bindRequest(new MockHttpServletRequest(), writeResponse);
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        dataSource.getConnection();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clear();
+
+        Cookie cookie = writeResponse.getCookie(ReplicaRoutingDataSource.READ_YOUR_WRITES_COOKIE);
+        assertThat(cookie).isNotNull();
+
+        MockHttpServletRequest writerRequest = new MockHttpServletRequest();
+        writerRequest.setCookies(cookie);
+        bindRequest(writerRequest, new MockHttpServletResponse());
+        readOnlyTransaction();
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+
+        bindRequest(new MockHttpServletRequest(), new MockHttpServletResponse());
+        assertThat(dataSource.getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    public void testWritesOutsideRequestsKeepReplicas() throws SQLException {
+
+        ReplicaRoutingDataSource dataSource = createDataSource(Duration.ofMinutes(1));
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(firstReplica.getConnection()).thenReturn(replicaConnection);
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        dataSource.getConnection();
+        readOnlyTransaction();
+
+        assertThat(dataSource.getConnection()).isSameAs(replicaConnection);
+    }
+
+    @Test
+    public void testFailingReplicaFallsBackToPrimary() throws SQLException {
+
+        ReplicaRoutingDataSource dataSource = createDataSource(Duration.ZERO);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(firstReplica.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        readOnlyTransaction();
+
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+        assertThat(dataSource.getHealthyReplicas()).containsExactly("replica-2");
+    }
+
+    @Test
+    public void testHealthCheckRestoresReplicas() throws SQLException {
+
+        ReplicaRoutingDataSource dataSource = createDataSource(Duration.ZERO);
+        when(firstReplica.getConnection()).thenThrow(new SQLException("Connection refused"));
+        when(secondReplica.getConnection()).thenReturn(replicaConnection);
+        when(replicaConnection.isValid(anyInt())).thenReturn(true);
+
+        dataSource.checkReplicas();
+        assertThat(dataSource.getHealthyReplicas()).containsExactly("replica-2");
+
+        reset(firstReplica);
+        when(firstReplica.getConnection()).thenReturn(replicaConnection);
+
+        dataSource.checkReplicas();
+        assertThat(dataSource.getHealthyReplicas()).containsExactly("replica-1", "replica-2");
+    }
+
+    private ReplicaRoutingDataSource createDataSource(Duration readYourWrites) {
+        Map<String, DataSource> replicas = new LinkedHashMap<>();
+        replicas.put("replica-1", firstReplica);
+        replicas.put("replica-2", secondReplica);
+        ReplicaRoutingDataSource dataSource = new ReplicaRoutingDataSource(primary, replicas, readYourWrites,
+                Duration.ofSeconds(1), new SimpleMeterRegistry());
+        dataSource.afterPropertiesSet();
+        return dataSource;
+    }
+
+    private static void bindRequest(MockHttpServletRequest request, MockHttpServletResponse response) {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request, response));
+    }
+
+    private static void readOnlyTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+    }
+
+}
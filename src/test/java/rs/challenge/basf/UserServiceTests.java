@@ -0,0 +1,77 @@
+package rs.challenge.basf;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import rs.challenge.basf.model.User;
+import rs.challenge.basf.repository.UserRepository;
+import rs.challenge.basf.service.UserService;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class UserServiceTests {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserService userService;
+
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        userService = new UserService(userRepository, Duration.ofMinutes(5), 100,
+                new SimpleMeterRegistry());
+        user = new User(1L, "user1@gmail.com", "encoded", "UserFirst1", "UserLast1");
+    }
+
+    @Test
+    public void testLoadUserServedFromCache() {
+
+        when(userRepository.findByEmail("user1@gmail.com")).thenReturn(Optional.of(user));
+
+        UserDetails first = userService.loadUserByUsername("user1@gmail.com");
+        UserDetails second = userService.loadUserByUsername("user1@gmail.com");
+
+        assertThat(first.getUsername()).isEqualTo("user1@gmail.com");
+        assertThat(second.getPassword()).isEqualTo("encoded");
+        assertThat(first).isNotSameAs(second);
+        verify(userRepository, times(1)).findByEmail("user1@gmail.com");
+    }
+
+    @Test
+    public void testSaveUserEvictsCache() {
+
+        when(userRepository.findByEmail("user1@gmail.com")).thenReturn(Optional.of(user));
+        when(userRepository.save(any(User.class))).thenReturn(user);
+
+        userService.loadUserByUsername("user1@gmail.com");
+        userService.save(user);
+        userService.loadUserByUsername("user1@gmail.com");
+
+        verify(userRepository, times(2)).findByEmail("user1@gmail.com");
+    }
+
+    @Test
+    public void testLoadUserUsernameNotFoundException() {
+
+        when(userRepository.findByEmail(any(String.class))).thenReturn(Optional.empty());
+
+        assertThrows(UsernameNotFoundException.class, () -> {
+            userService.loadUserByUsername("unknown@gmail.com");
+        });
+    }
+
+}
@@ -0,0 +1,68 @@
+package rs.challenge.basf;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.test.util.ReflectionTestUtils;
+import rs.challenge.basf.service.WeatherPrefetchService;
+import rs.challenge.basf.service.WeatherService;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class WeatherPrefetchServiceTests {
+
+    @Mock
+    private WeatherService weatherService;
+
+    @Mock
+    private TaskScheduler taskScheduler;
+
+    @InjectMocks
+    private WeatherPrefetchService weatherPrefetchService;
+
+    @BeforeEach
+    public void setup() {
+        ReflectionTestUtils.setField(weatherPrefetchService, "topK", 2);
+        ReflectionTestUtils.setField(weatherPrefetchService, "maxRequestsPerSecond", 5.0);
+    }
+
+    @Test
+    public void testHotCitiesOrderedByRequestCount() {
+
+        record("Belgrade", 3);
+        record("Vienna", 5);
+        record("Paris", 1);
+        record("belgrade ", 1);
+
+        assertThat(weatherPrefetchService.hotCities()).containsExactly("vienna", "belgrade");
+    }
+
+    @Test
+    public void testPrefetchSchedulesRefreshAndDecaysCounts() {
+
+        record("Belgrade", 4);
+        record("Vienna", 1);
+
+        weatherPrefetchService.prefetchHotCities();
+
+        verify(taskScheduler, times(2)).schedule(any(Runnable.class), any(Instant.class));
+        assertThat(weatherPrefetchService.hotCities()).containsExactly("belgrade");
+    }
+
+    private void record(String city, int times) {
+        for (int i = 0; i < times; i++) {
+            weatherPrefetchService.recordRequest(city);
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package rs.challenge.basf;
+
+import org.junit.jupiter.api.Test;
+import rs.challenge.basf.util.WeatherResponseParser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class WeatherResponseParserTests {
+
+    @Test
+    public void testReadTemperatureSkipsOtherFields() throws IOException {
+
+        String body = "{\"location\":{\"name\":\"Belgrade\",\"temp_c\":99},\"current\":{\"last_updated\":\"2023-12-01\"," +
+                "\"condition\":{\"text\":\"Sunny\",\"code\":1000},\"temp_c\":4.5,\"temp_f\":40.1}}";
+
+        assertThat(WeatherResponseParser.readTemperature(toStream(body))).isEqualTo(4.5);
+    }
+
+    @Test
+    public void testReadTemperatureMissingCurrent() {
+
+        assertThrows(IOException.class, () -> {
+            WeatherResponseParser.readTemperature(toStream("{\"error\":{\"code\":1006,\"message\":\"No location\"}}"));
+        });
+    }
+
+    @Test
+    public void testReadTemperatureMissingTemperature() {
+
+        assertThrows(IOException.class, () -> {
+            WeatherResponseParser.readTemperature(toStream("{\"current\":{\"temp_f\":40.1}}"));
+        });
+    }
+
+    private InputStream toStream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+}
@@ -0,0 +1,267 @@
+package rs.challenge.basf;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.client.MockRestServiceServer;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import rs.challenge.basf.model.TemperatureReading;
+import rs.challenge.basf.provider.WeatherApiProvider;
+import rs.challenge.basf.provider.WeatherProvider;
+import rs.challenge.basf.service.WeatherService;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.client.ExpectedCount.once;
+import static org.springframework.test.web.client.ExpectedCount.times;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.queryParam;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withStatus;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+public class WeatherServiceTests {
+
+    private MockRestServiceServer server;
+
+    private WeatherService weatherService;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setup() {
+        RestTemplate restTemplate = new RestTemplate();
+        server = MockRestServiceServer.bindTo(restTemplate).build();
+
+        WeatherApiProvider weatherApiProvider = new WeatherApiProvider(restTemplate);
+        ReflectionTestUtils.setField(weatherApiProvider, "WEATHER_API_KEY", "key");
+        ReflectionTestUtils.setField(weatherApiProvider, "WEATHER_API_URI", "http://localhost/v1/current.json");
+
+        weatherService = createService(List.of(weatherApiProvider), WeatherApiProvider.NAME, "");
+    }
+
+    private WeatherService createService(List<WeatherProvider> providers, String primary, String hedge) {
+        meterRegistry = new SimpleMeterRegistry();
+        WeatherService weatherService = new WeatherService(providers, meterRegistry);
+        ReflectionTestUtils.setField(weatherService, "primaryProviderName", primary);
+        ReflectionTestUtils.setField(weatherService, "hedgeProviderName", hedge);
+        ReflectionTestUtils.setField(weatherService, "hedgePercentile", 95.0);
+        ReflectionTestUtils.setField(weatherService, "hedgeMinDelay", Duration.ofMillis(10));
+        ReflectionTestUtils.setField(weatherService, "hedgeInitialDelay", Duration.ofMillis(50));
+        ReflectionTestUtils.setField(weatherService, "hedgeMinSamples", 20);
+        ReflectionTestUtils.setField(weatherService, "cacheTtl", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(weatherService, "cacheRefreshAfter", Duration.ofMinutes(5));
+        ReflectionTestUtils.setField(weatherService, "cacheMaxSize", 100L);
+        ReflectionTestUtils.setField(weatherService, "fallbackEnabled", true);
+        ReflectionTestUtils.setField(weatherService, "fallbackTtl", Duration.ofHours(24));
+        ReflectionTestUtils.setField(weatherService, "failureRateThreshold", 50f);
+        ReflectionTestUtils.setField(weatherService, "slowCallDuration", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(weatherService, "slidingWindowSize", 2);
+        ReflectionTestUtils.setField(weatherService, "minimumCalls", 2);
+        ReflectionTestUtils.setField(weatherService, "openDuration", Duration.ofSeconds(30));
+        ReflectionTestUtils.setField(weatherService, "maxConcurrentCalls", 10);
+        ReflectionTestUtils.setField(weatherService, "maxWait", Duration.ZERO);
+        weatherService.init();
+        return weatherService;
+    }
+
+    @Test
+    public void testGetTemperatureServedFromCache() {
+
+        server.expect(once(), queryParam("q", "belgrade"))
+                .andRespond(withSuccess("{\"current\":{\"temp_c\":21.4}}", MediaType.APPLICATION_JSON));
+
+        assertThat(weatherService.getTemperature("Belgrade").getValue()).isEqualTo(21.4);
+        assertThat(weatherService.getTemperature(" belgrade ").getValue()).isEqualTo(21.4);
+
+        server.verify();
+    }
+
+    @Test
+    public void testCachedTemperatureNeedsNoUpstreamCall() {
+
+        server.expect(once(), queryParam("q", "belgrade"))
+                .andRespond(withSuccess("{\"current\":{\"temp_c\":21.4}}", MediaType.APPLICATION_JSON));
+
+        assertThat(weatherService.getCachedTemperature("Belgrade")).isEmpty();
+        weatherService.getTemperature("Belgrade");
+        assertThat(weatherService.getCachedTemperature(" belgrade ")).get()
+                .extracting(TemperatureReading::getValue).isEqualTo(21.4);
+
+        server.verify();
+    }
+
+    @Test
+    public void testGetTemperatureRestClientException() {
+
+        server.expect(once(), queryParam("q", "belgrade"))
+                .andRespond(withServerError());
+
+        Exception exception = assertThrows(RestClientException.class, () -> {
+            weatherService.getTemperature("Belgrade");
+        });
+
+        assertThat(exception.getMessage()).contains("Error fetching temperature data for city");
+    }
+
+    @Test
+    public void testGetTemperatureFallsBackToLastKnown() {
+
+        ReflectionTestUtils.setField(weatherService, "cacheTtl", Duration.ofNanos(1));
+        weatherService.init();
+
+        server.expect(once(), queryParam("q", "belgrade"))
+                .andRespond(withSuccess("{\"current\":{\"temp_c\":21.4}}", MediaType.APPLICATION_JSON));
+        server.expect(once(), queryParam("q", "belgrade"))
+                .andRespond(withServerError());
+
+        TemperatureReading fresh = weatherService.getTemperature("Belgrade");
+        TemperatureReading stale = weatherService.getTemperature("Belgrade");
+
+        assertThat(fresh.isStale()).isFalse();
+        assertThat(stale.isStale()).isTrue();
+        assertThat(stale.getValue()).isEqualTo(21.4);
+        server.verify();
+    }
+
+    @Test
+    public void testGetTemperatureCircuitOpenFailsFast() {
+
+        server.expect(times(2), queryParam("q", "belgrade"))
+                .andRespond(withServerError());
+
+        assertThrows(RestClientException.class, () -> weatherService.getTemperature("Belgrade"));
+        assertThrows(RestClientException.class, () -> weatherService.getTemperature("Belgrade"));
+        Exception exception = assertThrows(CallNotPermittedException.class, () -> {
+            weatherService.getTemperature("Belgrade");
+        });
+
+        assertThat(WeatherService.isUnavailable(exception)).isTrue();
+        server.verify();
+    }
+
+    @Test
+    public void testGetTemperatureUnknownCityKeepsCircuitClosed() {
+
+        server.expect(times(3), queryParam("q", "atlantis"))
+                .andRespond(withStatus(HttpStatus.BAD_REQUEST));
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(RestClientException.class, () -> weatherService.getTemperature("Atlantis"));
+        }
+
+        CircuitBreaker circuitBreaker = (CircuitBreaker) ReflectionTestUtils.getField(weatherService, "circuitBreaker");
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        server.verify();
+    }
+
+    @Test
+    public void testGetTemperatureHedgesSlowPrimary() {
+
+        WeatherService hedged = createService(List.of(provider("slow", 1000, 21.4), provider("fast", 0, 20.9)),
+                "slow", "fast");
+
+        TemperatureReading reading = hedged.getTemperature("Belgrade");
+
+        assertThat(reading.getValue()).isEqualTo(20.9);
+        assertThat(meterRegistry.counter("weather.hedge", "provider", "fast").count()).isEqualTo(1);
+        hedged.shutdown();
+    }
+
+    @Test
+    public void testGetTemperatureCancelsLosingCall() throws InterruptedException {
+
+        CountDownLatch interrupted = new CountDownLatch(1);
+        WeatherProvider slow = new WeatherProvider() {
+            @Override
+            public String getName() {
+                return "slow";
+            }
+
+            @Override
+            public double fetchTemperature(String city) {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return 21.4;
+            }
+        };
+        WeatherService hedged = createService(List.of(slow, provider("fast", 0, 20.9)), "slow", "fast");
+
+        assertThat(hedged.getTemperature("Belgrade").getValue()).isEqualTo(20.9);
+        assertThat(interrupted.await(1, TimeUnit.SECONDS)).isTrue();
+        hedged.shutdown();
+    }
+
+    @Test
+    public void testGetTemperatureWithoutHedgeWhenPoolIsFull() throws InterruptedException {
+
+        WeatherService hedged = createService(List.of(provider("slow", 100, 21.4), provider("fast", 0, 20.9)),
+                "slow", "fast");
+        ThreadPoolExecutor hedgeExecutor = (ThreadPoolExecutor) ReflectionTestUtils.getField(hedged, "hedgeExecutor");
+        hedgeExecutor.setMaximumPoolSize(1);
+        CountDownLatch release = new CountDownLatch(1);
+        hedgeExecutor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        TemperatureReading reading = hedged.getTemperature("Belgrade");
+
+        // Rejected instead of run on the caller, the primary answers without a hedge
+        assertThat(reading.getValue()).isEqualTo(21.4);
+        assertThat(meterRegistry.counter("weather.hedge.rejected").count()).isEqualTo(1);
+        assertThat(meterRegistry.counter("weather.hedge", "provider", "fast").count()).isZero();
+        release.countDown();
+        hedged.shutdown();
+    }
+
+    @Test
+    public void testGetTemperatureSkipsHedgeForFastPrimary() {
+
+        WeatherService hedged = createService(List.of(provider("primary", 0, 21.4), provider("second", 0, 20.9)),
+                "primary", "second");
+
+        TemperatureReading reading = hedged.getTemperature("Belgrade");
+
+        assertThat(reading.getValue()).isEqualTo(21.4);
+        assertThat(meterRegistry.counter("weather.hedge", "provider", "second").count()).isZero();
+        hedged.shutdown();
+    }
+
+    private WeatherProvider provider(String name, long delayMillis, double temperature) {
+        return new WeatherProvider() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public double fetchTemperature(String city) {
+                try {
+                    Thread.sleep(delayMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return temperature;
+            }
+        };
+    }
+
+}